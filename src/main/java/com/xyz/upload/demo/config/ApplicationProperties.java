@@ -1,7 +1,15 @@
 package com.xyz.upload.demo.config;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import com.xyz.upload.demo.service.UploadOptions;
+
 /**
  * Properties specific to File Upload Demo.
  * <p>
@@ -11,4 +19,521 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Upload upload = new Upload();
+
+    private final Executors executors = new Executors();
+
+    private final Pagination pagination = new Pagination();
+
+    public Upload getUpload() {
+        return upload;
+    }
+
+    public Executors getExecutors() {
+        return executors;
+    }
+
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    /**
+     * What a thread pool does with a task once its queue is full.
+     */
+    public enum RejectionPolicy {
+        /** The submitter gets a TaskRejectedException. */
+        ABORT,
+        /** The submitter runs the task itself, which slows it down. */
+        CALLER_RUNS,
+        /** The oldest queued task is dropped. */
+        DISCARD_OLDEST,
+        /** The task is dropped. */
+        DISCARD;
+
+        public RejectedExecutionHandler newHandler() {
+            switch (this) {
+                case CALLER_RUNS:
+                    return new ThreadPoolExecutor.CallerRunsPolicy();
+                case DISCARD_OLDEST:
+                    return new ThreadPoolExecutor.DiscardOldestPolicy();
+                case DISCARD:
+                    return new ThreadPoolExecutor.DiscardPolicy();
+                default:
+                    return new ThreadPoolExecutor.AbortPolicy();
+            }
+        }
+    }
+
+    /**
+     * Sizes of the thread pools dedicated to a workload, so a burst of one workload cannot starve the others.
+     * <p>
+     * The upload jobs have their own pool too, see {@link Upload.Jobs}, and the other @Async methods use the
+     * jhipster.async pool.
+     */
+    public static class Executors {
+
+        private final Async async = new Async();
+
+        private final Pool mail = new Pool(1, 2, 500, RejectionPolicy.CALLER_RUNS);
+
+        private final Scheduling scheduling = new Scheduling();
+
+        public Async getAsync() {
+            return async;
+        }
+
+        public Pool getMail() {
+            return mail;
+        }
+
+        public Scheduling getScheduling() {
+            return scheduling;
+        }
+
+        public static class Pool {
+
+            private int corePoolSize;
+
+            private int maxPoolSize;
+
+            private int queueCapacity;
+
+            private RejectionPolicy rejectionPolicy;
+
+            public Pool(int corePoolSize, int maxPoolSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
+                this.corePoolSize = corePoolSize;
+                this.maxPoolSize = maxPoolSize;
+                this.queueCapacity = queueCapacity;
+                this.rejectionPolicy = rejectionPolicy;
+            }
+
+            public int getCorePoolSize() {
+                return corePoolSize;
+            }
+
+            public void setCorePoolSize(int corePoolSize) {
+                this.corePoolSize = corePoolSize;
+            }
+
+            public int getMaxPoolSize() {
+                return maxPoolSize;
+            }
+
+            public void setMaxPoolSize(int maxPoolSize) {
+                this.maxPoolSize = maxPoolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public RejectionPolicy getRejectionPolicy() {
+                return rejectionPolicy;
+            }
+
+            public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+                this.rejectionPolicy = rejectionPolicy;
+            }
+        }
+
+        /**
+         * The @Async pool, whose sizes are the jhipster.async ones.
+         */
+        public static class Async {
+
+            private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+            public RejectionPolicy getRejectionPolicy() {
+                return rejectionPolicy;
+            }
+
+            public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+                this.rejectionPolicy = rejectionPolicy;
+            }
+        }
+
+        /**
+         * The pool of the scheduled tasks, whose queue is unbounded: its tasks are only rejected once it is shut down.
+         */
+        public static class Scheduling {
+
+            private int poolSize = 2;
+
+            private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public RejectionPolicy getRejectionPolicy() {
+                return rejectionPolicy;
+            }
+
+            public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+                this.rejectionPolicy = rejectionPolicy;
+            }
+        }
+    }
+
+    /**
+     * The approximate total counts of the paginated queries, which are cached per criteria.
+     */
+    public static class Pagination {
+
+        private long countTtlSeconds = 60;
+
+        private int countCacheSize = 1000;
+
+        public long getCountTtlSeconds() {
+            return countTtlSeconds;
+        }
+
+        public void setCountTtlSeconds(long countTtlSeconds) {
+            this.countTtlSeconds = countTtlSeconds;
+        }
+
+        public int getCountCacheSize() {
+            return countCacheSize;
+        }
+
+        public void setCountCacheSize(int countCacheSize) {
+            this.countCacheSize = countCacheSize;
+        }
+    }
+
+    public static class Upload {
+
+        private int batchSize = 1000;
+
+        private int maxReportedErrors = 100;
+
+        private int parallelism = 0;
+
+        private int writers = 2;
+
+        private UploadOptions.Parser parser = UploadOptions.Parser.COMMONS;
+
+        private int checkpointRetentionDays = 7;
+
+        private int contentRetentionDays = 30;
+
+        private List<String> mergeKey = new ArrayList<>(Arrays.asList("first_name", "last_name"));
+
+        private final Jobs jobs = new Jobs();
+
+        private final Admission admission = new Admission();
+
+        private final ErrorReports errorReports = new ErrorReports();
+
+        private final Dedup dedup = new Dedup();
+
+        private final Distributed distributed = new Distributed();
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxReportedErrors() {
+            return maxReportedErrors;
+        }
+
+        public void setMaxReportedErrors(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public int getWriters() {
+            return writers;
+        }
+
+        public void setWriters(int writers) {
+            this.writers = writers;
+        }
+
+        public UploadOptions.Parser getParser() {
+            return parser;
+        }
+
+        public void setParser(UploadOptions.Parser parser) {
+            this.parser = parser;
+        }
+
+        public int getCheckpointRetentionDays() {
+            return checkpointRetentionDays;
+        }
+
+        public void setCheckpointRetentionDays(int checkpointRetentionDays) {
+            this.checkpointRetentionDays = checkpointRetentionDays;
+        }
+
+        public int getContentRetentionDays() {
+            return contentRetentionDays;
+        }
+
+        public void setContentRetentionDays(int contentRetentionDays) {
+            this.contentRetentionDays = contentRetentionDays;
+        }
+
+        public List<String> getMergeKey() {
+            return mergeKey;
+        }
+
+        public void setMergeKey(List<String> mergeKey) {
+            this.mergeKey = mergeKey;
+        }
+
+        public Jobs getJobs() {
+            return jobs;
+        }
+
+        public Admission getAdmission() {
+            return admission;
+        }
+
+        public ErrorReports getErrorReports() {
+            return errorReports;
+        }
+
+        public Dedup getDedup() {
+            return dedup;
+        }
+
+        public Distributed getDistributed() {
+            return distributed;
+        }
+
+        public static class Jobs {
+
+            private int poolSize = 2;
+
+            private int queueCapacity = 10;
+
+            private long retentionMinutes = 60;
+
+            private long eventsIntervalMillis = 1000;
+
+            public int getPoolSize() {
+                return poolSize;
+            }
+
+            public void setPoolSize(int poolSize) {
+                this.poolSize = poolSize;
+            }
+
+            public int getQueueCapacity() {
+                return queueCapacity;
+            }
+
+            public void setQueueCapacity(int queueCapacity) {
+                this.queueCapacity = queueCapacity;
+            }
+
+            public long getRetentionMinutes() {
+                return retentionMinutes;
+            }
+
+            public void setRetentionMinutes(long retentionMinutes) {
+                this.retentionMinutes = retentionMinutes;
+            }
+
+            public long getEventsIntervalMillis() {
+                return eventsIntervalMillis;
+            }
+
+            public void setEventsIntervalMillis(long eventsIntervalMillis) {
+                this.eventsIntervalMillis = eventsIntervalMillis;
+            }
+        }
+
+        public static class Admission {
+
+            private int maxConcurrent = 4;
+
+            private int maxQueued = 8;
+
+            private long queueTimeoutMillis = 5000;
+
+            private long retryAfterSeconds = 30;
+
+            public int getMaxConcurrent() {
+                return maxConcurrent;
+            }
+
+            public void setMaxConcurrent(int maxConcurrent) {
+                this.maxConcurrent = maxConcurrent;
+            }
+
+            public int getMaxQueued() {
+                return maxQueued;
+            }
+
+            public void setMaxQueued(int maxQueued) {
+                this.maxQueued = maxQueued;
+            }
+
+            public long getQueueTimeoutMillis() {
+                return queueTimeoutMillis;
+            }
+
+            public void setQueueTimeoutMillis(long queueTimeoutMillis) {
+                this.queueTimeoutMillis = queueTimeoutMillis;
+            }
+
+            public long getRetryAfterSeconds() {
+                return retryAfterSeconds;
+            }
+
+            public void setRetryAfterSeconds(long retryAfterSeconds) {
+                this.retryAfterSeconds = retryAfterSeconds;
+            }
+        }
+
+        public static class ErrorReports {
+
+            private String directory = System.getProperty("java.io.tmpdir") + "/file-upload-demo/error-reports";
+
+            private long retentionHours = 24;
+
+            private long maxTotalSizeMb = 1024;
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public void setDirectory(String directory) {
+                this.directory = directory;
+            }
+
+            public long getRetentionHours() {
+                return retentionHours;
+            }
+
+            public void setRetentionHours(long retentionHours) {
+                this.retentionHours = retentionHours;
+            }
+
+            public long getMaxTotalSizeMb() {
+                return maxTotalSizeMb;
+            }
+
+            public void setMaxTotalSizeMb(long maxTotalSizeMb) {
+                this.maxTotalSizeMb = maxTotalSizeMb;
+            }
+        }
+
+        public static class Dedup {
+
+            private long expectedRows = 10_000_000;
+
+            private double falsePositiveRate = 0.01;
+
+            public long getExpectedRows() {
+                return expectedRows;
+            }
+
+            public void setExpectedRows(long expectedRows) {
+                this.expectedRows = expectedRows;
+            }
+
+            public double getFalsePositiveRate() {
+                return falsePositiveRate;
+            }
+
+            public void setFalsePositiveRate(double falsePositiveRate) {
+                this.falsePositiveRate = falsePositiveRate;
+            }
+        }
+
+        public static class Distributed {
+
+            private int chunkSizeKb = 2048;
+
+            private int workers = 2;
+
+            private long pollIntervalMillis = 1000;
+
+            private long claimTimeoutMinutes = 10;
+
+            private int maxAttempts = 3;
+
+            private long retentionHours = 24;
+
+            private String nodeId;
+
+            public int getChunkSizeKb() {
+                return chunkSizeKb;
+            }
+
+            public void setChunkSizeKb(int chunkSizeKb) {
+                this.chunkSizeKb = chunkSizeKb;
+            }
+
+            public int getWorkers() {
+                return workers;
+            }
+
+            public void setWorkers(int workers) {
+                this.workers = workers;
+            }
+
+            public long getPollIntervalMillis() {
+                return pollIntervalMillis;
+            }
+
+            public void setPollIntervalMillis(long pollIntervalMillis) {
+                this.pollIntervalMillis = pollIntervalMillis;
+            }
+
+            public long getClaimTimeoutMinutes() {
+                return claimTimeoutMinutes;
+            }
+
+            public void setClaimTimeoutMinutes(long claimTimeoutMinutes) {
+                this.claimTimeoutMinutes = claimTimeoutMinutes;
+            }
+
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            public void setMaxAttempts(int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            public long getRetentionHours() {
+                return retentionHours;
+            }
+
+            public void setRetentionHours(long retentionHours) {
+                this.retentionHours = retentionHours;
+            }
+
+            public String getNodeId() {
+                return nodeId;
+            }
+
+            public void setNodeId(String nodeId) {
+                this.nodeId = nodeId;
+            }
+        }
+    }
 }
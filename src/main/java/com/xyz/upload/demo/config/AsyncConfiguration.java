@@ -7,53 +7,166 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.*;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 
+/**
+ * Every workload has its own thread pool: @Async methods, mails, upload jobs, chunks of distributed uploads and
+ * scheduled tasks.
+ * <p>
+ * The metrics of every pool are registered under executor.&lt;name&gt;, see {@link ExecutorMetrics}.
+ */
 @Configuration
 @EnableAsync
 @EnableScheduling
 public class AsyncConfiguration implements AsyncConfigurer, SchedulingConfigurer {
 
+    private static final String METRIC_PREFIX = "executor.";
+
     private final Logger log = LoggerFactory.getLogger(AsyncConfiguration.class);
 
     private final JHipsterProperties jHipsterProperties;
 
-    public AsyncConfiguration(JHipsterProperties jHipsterProperties) {
+    private final ApplicationProperties applicationProperties;
+
+    private final List<ExecutorMetrics> executorMetrics = new CopyOnWriteArrayList<>();
+
+    public AsyncConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
         this.jHipsterProperties = jHipsterProperties;
+        this.applicationProperties = applicationProperties;
     }
 
     @Override
     @Bean(name = "taskExecutor")
     public Executor getAsyncExecutor() {
         log.debug("Creating Async Task Executor");
+        ApplicationProperties.Executors.Async async = applicationProperties.getExecutors().getAsync();
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(jHipsterProperties.getAsync().getCorePoolSize());
         executor.setMaxPoolSize(jHipsterProperties.getAsync().getMaxPoolSize());
         executor.setQueueCapacity(jHipsterProperties.getAsync().getQueueCapacity());
         executor.setThreadNamePrefix("file-upload-demo-Executor-");
+        instrument("async", executor, async.getRejectionPolicy().newHandler());
+        return new ExceptionHandlingAsyncTaskExecutor(executor);
+    }
+
+    @Bean(name = "mailTaskExecutor")
+    public Executor mailTaskExecutor() {
+        log.debug("Creating Mail Task Executor");
+        ApplicationProperties.Executors.Pool mail = applicationProperties.getExecutors().getMail();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mail.getCorePoolSize());
+        executor.setMaxPoolSize(mail.getMaxPoolSize());
+        executor.setQueueCapacity(mail.getQueueCapacity());
+        executor.setThreadNamePrefix("file-upload-demo-Mail-");
+        instrument("mail", executor, mail.getRejectionPolicy().newHandler());
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    @Bean(name = "uploadTaskExecutor")
+    public ThreadPoolTaskExecutor uploadTaskExecutor() {
+        log.debug("Creating Upload Task Executor");
+        ApplicationProperties.Upload.Jobs jobs = applicationProperties.getUpload().getJobs();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobs.getPoolSize());
+        executor.setMaxPoolSize(jobs.getPoolSize());
+        executor.setQueueCapacity(jobs.getQueueCapacity());
+        executor.setThreadNamePrefix("file-upload-demo-Upload-");
+        // a full queue is answered with 429 Too Many Requests, so the upload jobs always abort
+        instrument("upload", executor, new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    @Bean(name = "chunkTaskExecutor")
+    public ThreadPoolTaskExecutor chunkTaskExecutor() {
+        log.debug("Creating Chunk Task Executor");
+        int workers = Math.max(applicationProperties.getUpload().getDistributed().getWorkers(), 1);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // a chunk is only claimed once a worker is free, so the chunks are never queued in the pool
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("file-upload-demo-Chunk-");
+        // a rejected chunk is given back to the queue by its poller, so the chunks always abort
+        instrument("chunk", executor, new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    private void instrument(String name, ThreadPoolTaskExecutor executor, RejectedExecutionHandler policy) {
+        ExecutorMetrics metrics = new ExecutorMetrics(name, executor::getThreadPoolExecutor);
+        executor.setTaskDecorator(metrics);
+        executor.setRejectedExecutionHandler(metrics.counting(policy));
+        executorMetrics.add(metrics);
+    }
+
+    /**
+     * Register the metrics of the pools once every bean is created: the async executor is created while the
+     * post processors are registered, before the MetricRegistry can be injected.
+     */
+    @Bean
+    public SmartInitializingSingleton executorMetricsRegistration(MetricRegistry metricRegistry) {
+        return () -> executorMetrics.forEach(metrics ->
+            metricRegistry.register(METRIC_PREFIX + metrics.getName(), metrics));
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
     }
-    
+
     @Override
     public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
         taskRegistrar.setScheduler(scheduledTaskExecutor());
     }
 
     @Bean
-    public Executor scheduledTaskExecutor() {
-        return Executors.newScheduledThreadPool(jHipsterProperties.getAsync().getCorePoolSize());
+    public ThreadPoolTaskScheduler scheduledTaskExecutor() {
+        log.debug("Creating Scheduled Task Executor");
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected ScheduledExecutorService createExecutor(int poolSize, ThreadFactory threadFactory,
+                    RejectedExecutionHandler rejectedExecutionHandler) {
+                ExecutorMetrics metrics = new ExecutorMetrics("scheduling", this::getScheduledThreadPoolExecutor);
+                executorMetrics.add(metrics);
+                return new ScheduledThreadPoolExecutor(poolSize, threadFactory,
+                        metrics.counting(rejectedExecutionHandler)) {
+
+                    @Override
+                    protected void beforeExecute(Thread thread, Runnable task) {
+                        metrics.started();
+                    }
+
+                    @Override
+                    protected void afterExecute(Runnable task, Throwable error) {
+                        metrics.finished();
+                    }
+                };
+            }
+        };
+        ApplicationProperties.Executors.Scheduling scheduling = applicationProperties.getExecutors().getScheduling();
+        scheduler.setPoolSize(scheduling.getPoolSize());
+        scheduler.setRejectedExecutionHandler(scheduling.getRejectionPolicy().newHandler());
+        scheduler.setThreadNamePrefix("file-upload-demo-Scheduler-");
+        return scheduler;
     }
 }
@@ -0,0 +1,118 @@
+package com.xyz.upload.demo.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.core.task.TaskDecorator;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+
+/**
+ * Metrics of a thread pool: its queue depth, active threads, pool size and completed tasks, the tasks it
+ * rejected, and the time its tasks waited in the queue and ran.
+ * <p>
+ * The metrics are created with the pool, which times its tasks through {@link #decorate(Runnable)} or
+ * {@link #started()} and {@link #finished()}, and they are registered in the MetricRegistry as a set.
+ */
+public class ExecutorMetrics implements TaskDecorator, MetricSet {
+
+    private final String name;
+
+    private final Supplier<ThreadPoolExecutor> pool;
+
+    private final Timer wait = newTimer();
+
+    private final Timer duration = newTimer();
+
+    private final Meter rejected = new Meter();
+
+    private final ThreadLocal<Long> startNanos = new ThreadLocal<>();
+
+    /**
+     * @param name the name of the pool
+     * @param pool the supplier of the pool, only called once the pool is initialized
+     */
+    public ExecutorMetrics(String name, Supplier<ThreadPoolExecutor> pool) {
+        this.name = name;
+        this.pool = pool;
+    }
+
+    private static Timer newTimer() {
+        return new Timer(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Time a task submitted to the pool, from its submission.
+     */
+    @Override
+    public Runnable decorate(Runnable task) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long start = System.nanoTime();
+            wait.update(start - submitted, TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+            } finally {
+                duration.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    /**
+     * Called by a pool thread before it runs a task which was not decorated, such as a scheduled task.
+     */
+    public void started() {
+        startNanos.set(System.nanoTime());
+    }
+
+    /**
+     * Called by a pool thread after it ran a task which was not decorated.
+     */
+    public void finished() {
+        Long start = startNanos.get();
+        if (start != null) {
+            startNanos.remove();
+            duration.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Count the tasks rejected by a policy.
+     *
+     * @param policy the handler of the rejected tasks
+     * @return the handler counting the rejected tasks, then calling the policy
+     */
+    public RejectedExecutionHandler counting(RejectedExecutionHandler policy) {
+        return (task, executor) -> {
+            rejected.mark();
+            policy.rejectedExecution(task, executor);
+        };
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+        metrics.put("queued", (Gauge<Integer>) () -> pool.get().getQueue().size());
+        metrics.put("active", (Gauge<Integer>) () -> pool.get().getActiveCount());
+        metrics.put("pool", (Gauge<Integer>) () -> pool.get().getPoolSize());
+        metrics.put("completed", (Gauge<Long>) () -> pool.get().getCompletedTaskCount());
+        metrics.put("rejected", rejected);
+        metrics.put("wait", wait);
+        metrics.put("duration", duration);
+        return Collections.unmodifiableMap(metrics);
+    }
+}
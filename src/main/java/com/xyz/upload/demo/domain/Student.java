@@ -1,5 +1,7 @@
 package com.xyz.upload.demo.domain;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -16,8 +18,23 @@ public class Student implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    public static final String ID_GENERATOR_TABLE = "student_id_generator";
+
+    public static final String ID_GENERATOR_SEGMENT = "student";
+
+    /**
+     * Ids are allocated in pooled blocks from a table, so that inserts can be batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "studentIdGenerator")
+    @GenericGenerator(name = "studentIdGenerator", strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+        @Parameter(name = "table_name", value = ID_GENERATOR_TABLE),
+        @Parameter(name = "segment_column_name", value = "sequence_name"),
+        @Parameter(name = "segment_value", value = ID_GENERATOR_SEGMENT),
+        @Parameter(name = "value_column_name", value = "next_val"),
+        @Parameter(name = "increment_size", value = "50"),
+        @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @NotNull
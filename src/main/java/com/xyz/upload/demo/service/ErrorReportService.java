@@ -0,0 +1,214 @@
+package com.xyz.upload.demo.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+import com.xyz.upload.demo.service.util.ErrorReport;
+
+/**
+ * Service for storing every rejected row of the uploads in error reports on disk.
+ * <p>
+ * Upload summaries only keep the first rejected rows; the complete list is appended to a report file,
+ * so a mostly invalid upload uses disk space instead of heap. Reports are evicted once they are older than
+ * the configured retention, and the oldest reports are evicted first when they use more than the configured
+ * total size. Only the closed reports are evicted, the reports of the uploads in progress are kept.
+ */
+@Service
+public class ErrorReportService {
+
+    private static final String REPORT_SUFFIX = ".tsv";
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final Pattern REPORT_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private final Logger log = LoggerFactory.getLogger(ErrorReportService.class);
+
+    private final Map<String, ErrorReport> reports = new ConcurrentHashMap<>();
+
+    private final ApplicationProperties.Upload.ErrorReports properties;
+
+    private final Path directory;
+
+    public ErrorReportService(ApplicationProperties applicationProperties) throws IOException {
+        this.properties = applicationProperties.getUpload().getErrorReports();
+        this.directory = Files.createDirectories(Paths.get(properties.getDirectory()));
+    }
+
+    /**
+     * Create the report of an upload.
+     *
+     * @param reportId the id of the report, or null to generate one
+     * @return the empty report
+     */
+    public ErrorReport create(String reportId) {
+        String id = reportId != null ? reportId : UUID.randomUUID().toString();
+        if (!REPORT_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid error report id: " + id);
+        }
+        ErrorReport report = ErrorReport.create(id, directory.resolve(id + REPORT_SUFFIX));
+        reports.put(id, report);
+        return report;
+    }
+
+    /**
+     * Create a temporary report for a part of an upload, to be appended to the report of the upload.
+     *
+     * @param report the report of the upload
+     * @param index the index of the part
+     * @return the empty report of the part
+     */
+    public ErrorReport createPart(ErrorReport report, int index) {
+        return ErrorReport.create(report.getId() + "-" + index,
+            directory.resolve(report.getId() + "-" + index + PART_SUFFIX));
+    }
+
+    /**
+     * Delete the file of a temporary report.
+     *
+     * @param part the report of a part of an upload
+     */
+    public void deletePart(ErrorReport part) {
+        try {
+            part.close();
+            Files.deleteIfExists(part.getFile());
+        } catch (IOException e) {
+            log.warn("Could not delete error report part {}", part.getFile(), e);
+        }
+    }
+
+    /**
+     * Get a page of the rejected rows of a report.
+     *
+     * @param reportId the id of the report
+     * @param pageable the pagination information
+     * @return the page of rejected rows, or empty if the report is unknown or evicted
+     */
+    public Optional<Page<RejectedRowDTO>> findRows(String reportId, Pageable pageable) {
+        return findOne(reportId).map(report -> {
+            try {
+                List<RejectedRowDTO> rows = report.read(pageable.getOffset(), pageable.getPageSize());
+                return new PageImpl<>(rows, pageable, report.getRowCount());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Check whether a report can still be read, without indexing its file.
+     *
+     * @param reportId the id of the report
+     * @return true if the report is known or has a file, false if it is unknown or evicted
+     */
+    public boolean exists(String reportId) {
+        return REPORT_ID.matcher(reportId).matches() &&
+            (reports.containsKey(reportId) || Files.exists(directory.resolve(reportId + REPORT_SUFFIX)));
+    }
+
+    private Optional<ErrorReport> findOne(String reportId) {
+        if (!REPORT_ID.matcher(reportId).matches()) {
+            return Optional.empty();
+        }
+        ErrorReport report = reports.get(reportId);
+        if (report != null) {
+            return Optional.of(report);
+        }
+        // reports written before a restart are indexed again on first read
+        Path file = directory.resolve(reportId + REPORT_SUFFIX);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(reports.computeIfAbsent(reportId, id -> open(id, file)));
+        } catch (UncheckedIOException e) {
+            log.warn("Could not open error report {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    private static ErrorReport open(String id, Path file) {
+        try {
+            return ErrorReport.open(id, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Evict the reports older than the retention, then the oldest reports above the maximum total size.
+     * <p>
+     * A report of an upload without rejected rows has no file, so the reports known in memory are evicted by their
+     * creation date rather than through their files. A report still open for appending is never evicted, but its
+     * file counts in the total size.
+     * <p>
+     * This is scheduled to get fired every 10 minutes.
+     */
+    @Scheduled(fixedDelay = 600000)
+    public void evictReports() throws IOException {
+        Instant limit = Instant.now().minus(properties.getRetentionHours(), ChronoUnit.HOURS);
+        reports.values().removeIf(report -> !report.isOpen() && report.getCreatedDate().isBefore(limit));
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + REPORT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(Comparator.comparing(ErrorReportService::lastModified).reversed());
+
+        long maxTotalSize = properties.getMaxTotalSizeMb() * 1024 * 1024;
+        long totalSize = 0;
+        for (Path file : files) {
+            totalSize += Files.size(file);
+            if (totalSize > maxTotalSize || lastModified(file).toInstant().isBefore(limit)) {
+                evict(file);
+            }
+        }
+    }
+
+    private void evict(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        String id = fileName.substring(0, fileName.length() - REPORT_SUFFIX.length());
+        ErrorReport report = reports.get(id);
+        if (report != null) {
+            if (report.isOpen()) {
+                return;
+            }
+            reports.remove(id, report);
+        }
+        Files.deleteIfExists(file);
+        log.debug("Evicted error report {}", id);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
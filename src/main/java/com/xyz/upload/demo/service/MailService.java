@@ -21,7 +21,7 @@ import org.thymeleaf.spring5.SpringTemplateEngine;
 /**
  * Service for sending emails.
  * <p>
- * We use the @Async annotation to send emails asynchronously.
+ * We use the @Async annotation to send emails asynchronously, on their own thread pool.
  */
 @Service
 public class MailService {
@@ -49,7 +49,7 @@ public class MailService {
         this.templateEngine = templateEngine;
     }
 
-    @Async
+    @Async("mailTaskExecutor")
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
         log.debug("Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart, isHtml, to, subject, content);
@@ -73,7 +73,7 @@ public class MailService {
         }
     }
 
-    @Async
+    @Async("mailTaskExecutor")
     public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
         Locale locale = Locale.forLanguageTag(user.getLangKey());
         Context context = new Context(locale);
@@ -85,19 +85,19 @@ public class MailService {
 
     }
 
-    @Async
+    @Async("mailTaskExecutor")
     public void sendActivationEmail(User user) {
         log.debug("Sending activation email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "mail/activationEmail", "email.activation.title");
     }
 
-    @Async
+    @Async("mailTaskExecutor")
     public void sendCreationEmail(User user) {
         log.debug("Sending creation email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "mail/creationEmail", "email.activation.title");
     }
 
-    @Async
+    @Async("mailTaskExecutor")
     public void sendPasswordResetMail(User user) {
         log.debug("Sending password reset email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "mail/passwordResetEmail", "email.reset.title");
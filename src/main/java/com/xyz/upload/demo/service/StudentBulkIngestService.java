@@ -0,0 +1,509 @@
+package com.xyz.upload.demo.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.domain.Student;
+import com.zaxxer.hikari.HikariDataSource;
+import com.xyz.upload.demo.service.dto.StudentDTO;
+
+/**
+ * Service for inserting large numbers of Student rows.
+ * <p>
+ * Rows are written with plain JDBC batches, one transaction per chunk, without going through
+ * the persistence context. Ids are reserved from the same table as the Hibernate pooled generator
+ * of {@link Student}, one block per chunk, so both ways of inserting never hand out the same id.
+ * <p>
+ * Chunks of pre-validated rows can also be written with the native bulk load of the database: the rows
+ * are staged in a CSV file which is loaded with {@code LOAD DATA LOCAL INFILE} on MySQL, or with
+ * {@code INSERT ... SELECT} from {@code CSVREAD} on H2. The database rejects nothing, or silently, so
+ * rows must be validated before they are loaded. Reading local files is only allowed on the connections of a small
+ * pool of its own, created on the first MySQL load, so no other statement can make the driver send a file.
+ * <p>
+ * Chunks can also be merged on a natural key: the rows are staged in the student_staging table, the students
+ * matching a staged row are updated with a single statement, and the other staged rows are inserted with another.
+ */
+@Service
+public class StudentBulkIngestService {
+
+    private static final String INSERT_SQL = "insert into student (id, first_name, last_name, age) values (?, ?, ?, ?)";
+
+    private static final String SELECT_NEXT_ID_SQL = "select next_val from " + Student.ID_GENERATOR_TABLE +
+        " where sequence_name = ? for update";
+
+    private static final String UPDATE_NEXT_ID_SQL = "update " + Student.ID_GENERATOR_TABLE +
+        " set next_val = ? where sequence_name = ? and next_val = ?";
+
+    private static final String MYSQL_LOAD_SQL = "load data local infile '%s' into table student character set utf8mb4" +
+        " fields terminated by ',' optionally enclosed by '\"' escaped by '' lines terminated by '\\n'" +
+        " (id, first_name, last_name, age)";
+
+    private static final String H2_LOAD_SQL = "insert into student (id, first_name, last_name, age)" +
+        " select * from csvread('%s', 'ID,FIRST_NAME,LAST_NAME,AGE', 'charset=UTF-8 fieldSeparator=,')";
+
+    private static final String SELECT_IDS_SQL = "select id from student where first_name = ? and last_name = ? and age = ?";
+
+    private static final String SELECT_IDS_NULL_LAST_NAME_SQL = "select id from student where first_name = ?" +
+        " and last_name is null and age = ?";
+
+    private static final List<String> COLUMNS = Arrays.asList("first_name", "last_name", "age");
+
+    private static final String INSERT_STAGING_SQL = "insert into student_staging (id, first_name, last_name, age) values (?, ?, ?, ?)";
+
+    private static final String DELETE_STAGING_SQL = "delete from student_staging where id between ? and ?";
+
+    private static final String MERGE_INSERT_SQL = "insert into student (id, first_name, last_name, age)" +
+        " select t.id, t.first_name, t.last_name, t.age from student_staging t where t.id between ? and ?" +
+        " and not exists (select 1 from student s where %s)";
+
+    private static final String MYSQL_MERGE_UPDATE_SQL = "update student s join student_staging t on %s set %s" +
+        " where t.id between ? and ?";
+
+    private static final String MERGE_UPDATE_SQL = "update student s set %s" +
+        " where exists (select 1 from student_staging t where t.id between ? and ? and %s)";
+
+    private final Logger log = LoggerFactory.getLogger(StudentBulkIngestService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate idTransactionTemplate;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final ApplicationProperties applicationProperties;
+
+    private volatile NativeDialect nativeDialect;
+
+    private volatile LocalFileLoader localFileLoader;
+
+    public StudentBulkIngestService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            DataSourceProperties dataSourceProperties, ApplicationProperties applicationProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.applicationProperties = applicationProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // ids are reserved in their own short transaction, so the generator row is not locked while a chunk is written
+        this.idTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.idTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        LocalFileLoader loader = localFileLoader;
+        if (loader != null) {
+            loader.dataSource.close();
+        }
+    }
+
+    /**
+     * Save all the students, committing every chunk of batchSize rows in its own transaction.
+     *
+     * @param students the students to save, none of them having an id
+     * @param batchSize the number of rows per JDBC batch and transaction
+     * @return the number of inserted rows
+     */
+    public long saveAll(Iterator<StudentDTO> students, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        List<StudentDTO> chunk = new ArrayList<>(batchSize);
+        long inserted = 0;
+        while (students.hasNext()) {
+            chunk.add(students.next());
+            if (chunk.size() == batchSize) {
+                inserted += saveChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            inserted += saveChunk(chunk);
+        }
+        return inserted;
+    }
+
+    /**
+     * Save a chunk of students as a single JDBC batch in one transaction.
+     * <p>
+     * The students are given consecutive ids, in the order of the chunk.
+     *
+     * @param chunk the students to save
+     * @return the number of inserted rows
+     */
+    public int saveChunk(List<StudentDTO> chunk) {
+        log.debug("Request to bulk save {} Students", chunk.size());
+        long firstId = reserveIds(chunk.size());
+        Integer inserted = transactionTemplate.execute(status -> {
+            long[] nextId = { firstId };
+            int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), (ps, student) -> {
+                student.setId(nextId[0]);
+                ps.setLong(1, nextId[0]++);
+                ps.setString(2, student.getFirstName());
+                ps.setString(3, student.getLastName());
+                ps.setInt(4, student.getAge());
+            });
+            return sum(counts);
+        });
+        return inserted == null ? 0 : inserted;
+    }
+
+    /**
+     * Save a chunk of pre-validated students with the native bulk load of the database, in one transaction.
+     * <p>
+     * Databases without a native bulk load get the chunk as a JDBC batch. So does MySQL within a transaction, such as
+     * the one of a checkpoint, as its local file is loaded on a connection of its own. Either way, the students are
+     * given consecutive ids, in the order of the chunk.
+     *
+     * @param chunk the students to save, all of them valid
+     * @return the number of inserted rows
+     */
+    public int loadChunk(List<StudentDTO> chunk) {
+        NativeDialect dialect = getNativeDialect();
+        if (dialect == NativeDialect.NONE ||
+                (dialect == NativeDialect.MYSQL && TransactionSynchronizationManager.isActualTransactionActive())) {
+            return saveChunk(chunk);
+        }
+        log.debug("Request to bulk load {} Students", chunk.size());
+        long firstId = reserveIds(chunk.size());
+        Path stagingFile = null;
+        try {
+            stagingFile = Files.createTempFile("student-load-", ".csv");
+            writeStagingFile(stagingFile, chunk, firstId, dialect);
+            String sql = String.format(dialect.loadSql, dialect.quote(stagingFile.toAbsolutePath().toString()));
+            LocalFileLoader loader = dialect == NativeDialect.MYSQL ? getLocalFileLoader() : null;
+            Integer inserted = loader != null
+                ? loader.transactionTemplate.execute(status -> loader.jdbcTemplate.update(sql))
+                : transactionTemplate.execute(status -> jdbcTemplate.update(sql));
+            return inserted == null ? 0 : inserted;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deleteStagingFile(stagingFile);
+        }
+    }
+
+    /**
+     * Get the ids of the students having all the values of a student.
+     *
+     * @param student the values to match
+     * @return the ids of the matching students
+     */
+    public List<Long> findIds(StudentDTO student) {
+        if (student.getLastName() == null) {
+            return jdbcTemplate.queryForList(SELECT_IDS_NULL_LAST_NAME_SQL, Long.class, student.getFirstName(),
+                student.getAge());
+        }
+        return jdbcTemplate.queryForList(SELECT_IDS_SQL, Long.class, student.getFirstName(), student.getLastName(),
+            student.getAge());
+    }
+
+    /**
+     * Merge a chunk of students on a natural key, in one transaction.
+     * <p>
+     * The students matching a row on all the key columns get the other columns of the row, and the rows
+     * matching no student are inserted. Rows of the chunk with the same key are merged into the last one.
+     * A null key column matches a null column, as in the chunk. When the key has all the columns, matching
+     * students are already up to date, so none is updated.
+     *
+     * @param chunk the students to merge
+     * @param keyColumns the Student columns of the natural key
+     * @return the numbers of inserted and updated students, as counted by the database
+     */
+    public MergeResult mergeChunk(List<StudentDTO> chunk, List<String> keyColumns) {
+        if (keyColumns.isEmpty() || !COLUMNS.containsAll(keyColumns)) {
+            throw new IllegalArgumentException("Invalid Student merge key: " + keyColumns);
+        }
+        log.debug("Request to merge {} Students on {}", chunk.size(), keyColumns);
+        Map<List<Object>, StudentDTO> rowsByKey = new LinkedHashMap<>();
+        for (StudentDTO student : chunk) {
+            rowsByKey.put(keyOf(student, keyColumns), student);
+        }
+        List<StudentDTO> rows = new ArrayList<>(rowsByKey.values());
+        long firstId = reserveIds(rows.size());
+        long lastId = firstId + rows.size() - 1;
+        String keyMatch = keyColumns.stream().map(this::nullSafeMatch).collect(Collectors.joining(" and "));
+        List<String> valueColumns = COLUMNS.stream().filter(column -> !keyColumns.contains(column))
+            .collect(Collectors.toList());
+
+        MergeResult result = transactionTemplate.execute(status -> {
+            long[] nextId = { firstId };
+            jdbcTemplate.batchUpdate(INSERT_STAGING_SQL, rows, rows.size(), (ps, student) -> {
+                ps.setLong(1, nextId[0]++);
+                ps.setString(2, student.getFirstName());
+                ps.setString(3, student.getLastName());
+                ps.setInt(4, student.getAge());
+            });
+            int updated = 0;
+            if (!valueColumns.isEmpty()) {
+                String updateSql = mergeUpdateSql(keyMatch, valueColumns);
+                updated = jdbcTemplate.update(updateSql, idRangeArgs(updateSql, firstId, lastId));
+            }
+            int inserted = jdbcTemplate.update(String.format(MERGE_INSERT_SQL, keyMatch), firstId, lastId);
+            jdbcTemplate.update(DELETE_STAGING_SQL, firstId, lastId);
+            return new MergeResult(inserted, updated);
+        });
+        return result == null ? new MergeResult(0, 0) : result;
+    }
+
+    /**
+     * Match a column of a student with the same column of a staged row, null matching null.
+     */
+    private String nullSafeMatch(String column) {
+        if (getNativeDialect() == NativeDialect.MYSQL) {
+            return "s." + column + " <=> t." + column;
+        }
+        return "(s." + column + " = t." + column + " or (s." + column + " is null and t." + column + " is null))";
+    }
+
+    private String mergeUpdateSql(String keyMatch, List<String> valueColumns) {
+        if (getNativeDialect() == NativeDialect.MYSQL) {
+            String assignments = valueColumns.stream().map(column -> "s." + column + " = t." + column)
+                .collect(Collectors.joining(", "));
+            return String.format(MYSQL_MERGE_UPDATE_SQL, keyMatch, assignments);
+        }
+        // without a join in update statements, every column is read from the matching staged row
+        String assignments = valueColumns.stream().map(column -> column + " = (select t." + column +
+            " from student_staging t where t.id between ? and ? and " + keyMatch + ")")
+            .collect(Collectors.joining(", "));
+        return String.format(MERGE_UPDATE_SQL, assignments, keyMatch);
+    }
+
+    /**
+     * Get the arguments of a statement whose parameters are all pairs of id range bounds.
+     */
+    private static Object[] idRangeArgs(String sql, long firstId, long lastId) {
+        Object[] args = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = i % 2 == 0 ? firstId : lastId;
+        }
+        return args;
+    }
+
+    private static List<Object> keyOf(StudentDTO student, List<String> keyColumns) {
+        List<Object> key = new ArrayList<>(keyColumns.size());
+        for (String column : keyColumns) {
+            switch (column) {
+                case "first_name":
+                    key.add(student.getFirstName());
+                    break;
+                case "last_name":
+                    key.add(student.getLastName());
+                    break;
+                default:
+                    key.add(student.getAge());
+                    break;
+            }
+        }
+        return key;
+    }
+
+    private NativeDialect getNativeDialect() {
+        NativeDialect dialect = nativeDialect;
+        if (dialect == null) {
+            String productName = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+            dialect = NativeDialect.fromProductName(productName);
+            if (dialect == NativeDialect.NONE) {
+                log.warn("No native bulk load for {}, using JDBC batches instead", productName);
+            }
+            nativeDialect = dialect;
+        }
+        return dialect;
+    }
+
+    /**
+     * Get the pool allowed to load local files, one connection per writer of every admitted upload.
+     */
+    private LocalFileLoader getLocalFileLoader() {
+        LocalFileLoader loader = localFileLoader;
+        if (loader == null) {
+            synchronized (this) {
+                loader = localFileLoader;
+                if (loader == null) {
+                    HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                        .type(HikariDataSource.class).build();
+                    dataSource.setPoolName("local-file-load");
+                    dataSource.setAutoCommit(false);
+                    dataSource.setMinimumIdle(0);
+                    ApplicationProperties.Upload upload = applicationProperties.getUpload();
+                    dataSource.setMaximumPoolSize(
+                        Math.max(upload.getAdmission().getMaxConcurrent() * upload.getWriters(), 1));
+                    dataSource.addDataSourceProperty("allowLoadLocalInfile", "true");
+                    loader = new LocalFileLoader(dataSource);
+                    localFileLoader = loader;
+                }
+            }
+        }
+        return loader;
+    }
+
+    private static void writeStagingFile(Path stagingFile, List<StudentDTO> chunk, long firstId, NativeDialect dialect)
+            throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(stagingFile, StandardCharsets.UTF_8)) {
+            long id = firstId;
+            for (StudentDTO student : chunk) {
+                student.setId(id);
+                writer.append(Long.toString(id++)).append(',');
+                writeField(writer, student.getFirstName(), dialect);
+                writer.append(',');
+                writeField(writer, student.getLastName(), dialect);
+                writer.append(',').append(Integer.toString(student.getAge())).append('\n');
+            }
+        }
+    }
+
+    private static void writeField(BufferedWriter writer, String value, NativeDialect dialect) throws IOException {
+        if (value == null) {
+            writer.append(dialect.nullValue);
+        } else {
+            writer.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private void deleteStagingFile(Path stagingFile) {
+        if (stagingFile != null) {
+            try {
+                Files.deleteIfExists(stagingFile);
+            } catch (IOException e) {
+                log.warn("Could not delete staging file {}: {}", stagingFile, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reserve a block of consecutive ids, the same way the pooled-lo optimizer of Hibernate does.
+     *
+     * @param count the number of ids to reserve
+     * @return the first reserved id
+     */
+    private long reserveIds(int count) {
+        Long firstId = idTransactionTemplate.execute(status -> {
+            Long next = jdbcTemplate.queryForObject(SELECT_NEXT_ID_SQL, Long.class, Student.ID_GENERATOR_SEGMENT);
+            if (next == null || jdbcTemplate.update(UPDATE_NEXT_ID_SQL, next + count, Student.ID_GENERATOR_SEGMENT, next) != 1) {
+                throw new IllegalStateException("Could not reserve " + count + " Student ids");
+            }
+            return next;
+        });
+        return firstId;
+    }
+
+    private static int sum(int[][] counts) {
+        int total = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // drivers rewriting batches into multi-row inserts report SUCCESS_NO_INFO per row
+                total += count >= 0 ? count : 1;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The pool of the connections allowed to load local files, with its own transactions.
+     */
+    private static final class LocalFileLoader {
+
+        private final HikariDataSource dataSource;
+
+        private final JdbcTemplate jdbcTemplate;
+
+        private final TransactionTemplate transactionTemplate;
+
+        private LocalFileLoader(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        }
+    }
+
+    /**
+     * The numbers of students written by a merge.
+     */
+    public static final class MergeResult {
+
+        private final int insertedRows;
+
+        private final int updatedRows;
+
+        MergeResult(int insertedRows, int updatedRows) {
+            this.insertedRows = insertedRows;
+            this.updatedRows = updatedRows;
+        }
+
+        public int getInsertedRows() {
+            return insertedRows;
+        }
+
+        /**
+         * @return the number of existing students updated, which can differ from the number of merged rows when
+         * several students have the same key
+         */
+        public int getUpdatedRows() {
+            return updatedRows;
+        }
+    }
+
+    /**
+     * The native bulk loads, by database.
+     */
+    private enum NativeDialect {
+        // an unquoted NULL is read as NULL by MySQL, an unquoted empty field by H2
+        MYSQL(MYSQL_LOAD_SQL, "NULL"),
+        H2(H2_LOAD_SQL, ""),
+        NONE(null, null);
+
+        private final String loadSql;
+
+        private final String nullValue;
+
+        NativeDialect(String loadSql, String nullValue) {
+            this.loadSql = loadSql;
+            this.nullValue = nullValue;
+        }
+
+        private String quote(String path) {
+            // MySQL string literals have backslash escapes, H2 ones do not
+            String quoted = this == MYSQL ? path.replace("\\", "\\\\") : path;
+            return quoted.replace("'", "''");
+        }
+
+        private static NativeDialect fromProductName(String productName) {
+            String name = productName == null ? "" : productName.toLowerCase(Locale.ROOT);
+            if (name.contains("mysql") || name.contains("mariadb")) {
+                return MYSQL;
+            }
+            if (name.equals("h2")) {
+                return H2;
+            }
+            return NONE;
+        }
+    }
+}
@@ -1,23 +1,43 @@
 package com.xyz.upload.demo.service;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import io.github.jhipster.service.QueryService;
 
+import com.xyz.upload.demo.config.ApplicationProperties;
 import com.xyz.upload.demo.domain.Student;
 import com.xyz.upload.demo.domain.*; // for static metamodels
 import com.xyz.upload.demo.repository.StudentRepository;
+import com.xyz.upload.demo.service.dto.ApproximateCountDTO;
 import com.xyz.upload.demo.service.dto.StudentCriteria;
+import com.xyz.upload.demo.service.dto.StudentCursor;
 import com.xyz.upload.demo.service.dto.StudentDTO;
 import com.xyz.upload.demo.service.mapper.StudentMapper;
 
@@ -26,6 +46,11 @@ import com.xyz.upload.demo.service.mapper.StudentMapper;
  * The main input is a {@link StudentCriteria} which gets converted to {@link Specification},
  * in a way that all the filters must apply.
  * It returns a {@link List} of {@link StudentDTO} or a {@link Page} of {@link StudentDTO} which fulfills the criteria.
+ * <p>
+ * Deep pages can also be read after a {@link StudentCursor}, as a {@link Slice} whose cost does not depend on depth.
+ * <p>
+ * The pages which do not need an exact total count can be read as a {@link Slice}, without a count query, and
+ * with an approximate count cached per criteria.
  */
 @Service
 @Transactional(readOnly = true)
@@ -37,9 +62,18 @@ public class StudentQueryService extends QueryService<Student> {
 
     private final StudentMapper studentMapper;
 
-    public StudentQueryService(StudentRepository studentRepository, StudentMapper studentMapper) {
+    private final EntityManager entityManager;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final Map<StudentCriteria, ApproximateCountDTO> counts = new ConcurrentHashMap<>();
+
+    public StudentQueryService(StudentRepository studentRepository, StudentMapper studentMapper,
+            EntityManager entityManager, ApplicationProperties applicationProperties) {
         this.studentRepository = studentRepository;
         this.studentMapper = studentMapper;
+        this.entityManager = entityManager;
+        this.applicationProperties = applicationProperties;
     }
 
     /**
@@ -68,6 +102,59 @@ public class StudentQueryService extends QueryService<Student> {
             .map(studentMapper::toDto);
     }
 
+    /**
+     * Return a {@link Slice} of {@link StudentDTO} which matches the criteria from the database, after a cursor.
+     * <p>
+     * Rather than reading and skipping the rows of the previous pages like an offset, the query seeks past the
+     * (key, id) of the cursor on the index of the key, so every slice costs the same whatever its depth.
+     * One more row than the size is read to know whether there is a next slice, and the rows are never counted.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param after The cursor, which the returned entities follow.
+     * @param size The maximum number of entities to return.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<StudentDTO> findByCriteria(StudentCriteria criteria, StudentCursor after, int size) {
+        log.debug("find by criteria : {}, after: {}, size: {}", criteria, after, size);
+        final Specification<Student> specification = createSpecification(criteria).and(createSeekSpecification(after));
+        return findSlice(specification, (root, builder) -> createSeekOrders(after, root, builder),
+            PageRequest.of(0, size));
+    }
+
+    /**
+     * Return a {@link Slice} of {@link StudentDTO} which matches the criteria from the database, without counting them.
+     * <p>
+     * One more row than the size of the page is read to know whether there is a next page.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param page The page, which should be returned.
+     * @return the matching entities.
+     */
+    @Transactional(readOnly = true)
+    public Slice<StudentDTO> findSliceByCriteria(StudentCriteria criteria, Pageable page) {
+        log.debug("find slice by criteria : {}, page: {}", criteria, page);
+        final Specification<Student> specification = createSpecification(criteria);
+        return findSlice(specification, (root, builder) -> QueryUtils.toOrders(page.getSort(), root, builder), page);
+    }
+
+    private Slice<StudentDTO> findSlice(Specification<Student> specification,
+            BiFunction<Root<Student>, CriteriaBuilder, List<Order>> orders, Pageable page) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Student> query = builder.createQuery(Student.class);
+        Root<Student> root = query.from(Student.class);
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(orders.apply(root, builder));
+        List<Student> students = entityManager.createQuery(query)
+            .setFirstResult((int) page.getOffset())
+            .setMaxResults(page.getPageSize() + 1)
+            .getResultList();
+        boolean hasNext = students.size() > page.getPageSize();
+        List<StudentDTO> content = studentMapper.toDto(hasNext ? students.subList(0, page.getPageSize()) : students);
+        return new SliceImpl<>(content, page, hasNext);
+    }
+
     /**
      * Return the number of matching entities in the database
      * @param criteria The object which holds all the filters, which the entities should match.
@@ -80,6 +167,79 @@ public class StudentQueryService extends QueryService<Student> {
         return studentRepository.count(specification);
     }
 
+    /**
+     * Return the number of matching entities in the database, as counted at most countTtlSeconds ago.
+     * <p>
+     * The counts are cached per criteria, so the pages of a criteria are only counted once per period.
+     * When the cache is full, its expired counts are evicted, or all of them if none is expired.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @return the number of matching entities, with the time it was counted.
+     */
+    @Transactional(readOnly = true)
+    public ApproximateCountDTO approximateCountByCriteria(StudentCriteria criteria) {
+        ApplicationProperties.Pagination pagination = applicationProperties.getPagination();
+        Instant now = Instant.now();
+        Instant expired = now.minusSeconds(pagination.getCountTtlSeconds());
+        StudentCriteria key = criteria != null ? criteria : new StudentCriteria();
+        ApproximateCountDTO cached = counts.get(key);
+        if (cached != null && cached.getCountedAt().isAfter(expired)) {
+            return cached;
+        }
+        ApproximateCountDTO count = new ApproximateCountDTO(countByCriteria(criteria), now);
+        if (counts.size() >= pagination.getCountCacheSize()) {
+            counts.values().removeIf(value -> !value.getCountedAt().isAfter(expired));
+            if (counts.size() >= pagination.getCountCacheSize()) {
+                counts.clear();
+            }
+        }
+        counts.put(key, count);
+        return count;
+    }
+
+    /**
+     * Function to convert a StudentCursor to a {@link Specification} of the entities after it
+     */
+    private Specification<Student> createSeekSpecification(StudentCursor after) {
+        return (root, query, builder) -> {
+            if (after.isFirst()) {
+                return null;
+            }
+            boolean ascending = after.getDirection().isAscending();
+            switch (after.getKey()) {
+                case FIRST_NAME:
+                    return seek(builder, root, Student_.firstName, (String) after.getValue(), after.getId(), ascending);
+                case AGE:
+                    return seek(builder, root, Student_.age, (Integer) after.getValue(), after.getId(), ascending);
+                default:
+                    return isPast(builder, root.get(Student_.id), after.getId(), ascending);
+            }
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate seek(CriteriaBuilder builder, Root<Student> root,
+            SingularAttribute<Student, Y> key, Y value, Long id, boolean ascending) {
+        Path<Y> keyPath = root.get(key);
+        return builder.or(isPast(builder, keyPath, value, ascending),
+            builder.and(builder.equal(keyPath, value), isPast(builder, root.get(Student_.id), id, ascending)));
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate isPast(CriteriaBuilder builder, Path<Y> path, Y value,
+            boolean ascending) {
+        return ascending ? builder.greaterThan(path, value) : builder.lessThan(path, value);
+    }
+
+    private static List<Order> createSeekOrders(StudentCursor after, Root<Student> root, CriteriaBuilder builder) {
+        boolean ascending = after.getDirection().isAscending();
+        List<Order> orders = new ArrayList<>(2);
+        if (after.getKey() != StudentCursor.Key.ID) {
+            Path<?> keyPath = root.get(after.getKey().getProperty());
+            orders.add(ascending ? builder.asc(keyPath) : builder.desc(keyPath));
+        }
+        Path<Long> idPath = root.get(Student_.id);
+        orders.add(ascending ? builder.asc(idPath) : builder.desc(idPath));
+        return orders;
+    }
+
     /**
      * Function to convert StudentCriteria to a {@link Specification}
      */
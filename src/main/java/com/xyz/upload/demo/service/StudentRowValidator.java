@@ -0,0 +1,156 @@
+package com.xyz.upload.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import javax.validation.groups.Default;
+import javax.validation.metadata.BeanDescriptor;
+import javax.validation.metadata.ConstraintDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.xyz.upload.demo.service.dto.StudentDTO;
+
+/**
+ * Validator of uploaded {@link StudentDTO} rows.
+ * <p>
+ * The constraints declared on StudentDTO are read once from the Bean Validation metadata and compiled
+ * into plain checks, which run on every row. The full validator only runs for rows failing these checks,
+ * to build the error messages, or for every row if StudentDTO declares a constraint which cannot be compiled.
+ * <p>
+ * Rows are not timed one by one here: the validate stage is timed per chunk by {@link UploadMetrics}.
+ */
+@Component
+public class StudentRowValidator {
+
+    private static final Map<String, Function<StudentDTO, Object>> ACCESSORS;
+
+    static {
+        Map<String, Function<StudentDTO, Object>> accessors = new HashMap<>();
+        accessors.put("id", StudentDTO::getId);
+        accessors.put("firstName", StudentDTO::getFirstName);
+        accessors.put("lastName", StudentDTO::getLastName);
+        accessors.put("age", StudentDTO::getAge);
+        ACCESSORS = Collections.unmodifiableMap(accessors);
+    }
+
+    private final Logger log = LoggerFactory.getLogger(StudentRowValidator.class);
+
+    private final Validator validator;
+
+    private final List<Predicate<StudentDTO>> checks = new ArrayList<>();
+
+    private final boolean compiled;
+
+    public StudentRowValidator(Validator validator) {
+        this.validator = validator;
+        this.compiled = compile(validator.getConstraintsForClass(StudentDTO.class));
+        if (!compiled) {
+            log.warn("StudentDTO declares constraints which cannot be compiled, every row uses the full validator");
+        }
+    }
+
+    /**
+     * Check a row against the StudentDTO constraints.
+     *
+     * @param student the row to check
+     * @return true if the row is valid
+     */
+    public boolean isValid(StudentDTO student) {
+        if (!compiled) {
+            return validator.validate(student).isEmpty();
+        }
+        for (Predicate<StudentDTO> check : checks) {
+            if (!check.test(student)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Describe why a row is invalid, using the messages of the full validator.
+     *
+     * @param student the invalid row
+     * @return the violation messages, separated by "  &amp;  "
+     */
+    public String describeViolations(StudentDTO student) {
+        return String.join("  &  ", describeViolationsByRule(student).values());
+    }
+
+    /**
+     * Describe why a row is invalid, by violated rule.
+     * <p>
+     * A rule is a constraint on a property, named after both, such as "firstName.NotNull".
+     *
+     * @param student the invalid row
+     * @return the violation messages by rule
+     */
+    public Map<String, String> describeViolationsByRule(StudentDTO student) {
+        Set<ConstraintViolation<StudentDTO>> violations = validator.validate(student);
+        Map<String, String> messages = new LinkedHashMap<>();
+        for (ConstraintViolation<StudentDTO> violation : violations) {
+            String rule = violation.getPropertyPath() + "." +
+                violation.getConstraintDescriptor().getAnnotation().annotationType().getSimpleName();
+            messages.put(rule, violation.getPropertyPath() + " " + violation.getMessage());
+        }
+        return messages;
+    }
+
+    private boolean compile(BeanDescriptor descriptor) {
+        if (!descriptor.getConstraintDescriptors().isEmpty()) {
+            return false;
+        }
+        for (PropertyDescriptor property : descriptor.getConstrainedProperties()) {
+            Function<StudentDTO, Object> accessor = ACCESSORS.get(property.getPropertyName());
+            if (accessor == null || property.isCascaded()) {
+                return false;
+            }
+            for (ConstraintDescriptor<?> constraint : property.getConstraintDescriptors()) {
+                if (!constraint.getGroups().contains(Default.class)) {
+                    continue;
+                }
+                Predicate<StudentDTO> check = compile(constraint, property.getElementClass(), accessor);
+                if (check == null) {
+                    return false;
+                }
+                checks.add(check);
+            }
+        }
+        return true;
+    }
+
+    private static Predicate<StudentDTO> compile(ConstraintDescriptor<?> constraint, Class<?> type,
+            Function<StudentDTO, Object> accessor) {
+        if (!constraint.getComposingConstraints().isEmpty()) {
+            return null;
+        }
+        Object annotation = constraint.getAnnotation();
+        if (annotation instanceof NotNull) {
+            return student -> accessor.apply(student) != null;
+        }
+        if (annotation instanceof Size && CharSequence.class.isAssignableFrom(type)) {
+            int min = ((Size) annotation).min();
+            int max = ((Size) annotation).max();
+            return student -> {
+                CharSequence value = (CharSequence) accessor.apply(student);
+                return value == null || (value.length() >= min && value.length() <= max);
+            };
+        }
+        return null;
+    }
+}
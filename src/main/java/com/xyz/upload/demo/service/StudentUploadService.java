@@ -0,0 +1,869 @@
+package com.xyz.upload.demo.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.PreDestroy;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+import com.xyz.upload.demo.service.dto.RuleViolationsDTO;
+import com.xyz.upload.demo.service.dto.StudentDTO;
+import com.xyz.upload.demo.service.dto.UploadCheckpointDTO;
+import com.xyz.upload.demo.service.dto.UploadSummaryDTO;
+import com.xyz.upload.demo.service.util.ByteStudentCsvReader;
+import com.xyz.upload.demo.service.util.CommonsStudentCsvReader;
+import com.xyz.upload.demo.service.util.DuplicateRowDetector;
+import com.xyz.upload.demo.service.util.ErrorReport;
+import com.xyz.upload.demo.service.util.NdjsonStudentReader;
+import com.xyz.upload.demo.service.util.OffHeapBloomFilter;
+import com.xyz.upload.demo.service.util.ProgressInputStream;
+import com.xyz.upload.demo.service.util.StudentCsvReader;
+import com.xyz.upload.demo.web.rest.errors.BadRequestAlertException;
+
+/**
+ * Service for ingesting Student CSV uploads.
+ * <p>
+ * The CSV is read incrementally and valid rows are persisted in bounded chunks,
+ * so the memory used does not grow with the size of the upload.
+ * <p>
+ * A CSV spooled to disk can also be ingested in parallel: the file is split into line-aligned segments
+ * which are parsed, validated and persisted on a {@link ForkJoinPool}. This mode requires that no quoted
+ * field spans several lines.
+ * <p>
+ * Uploads of JSON lines are read with the Jackson token stream, see {@link UploadOptions.Format}.
+ * CSV uploads are read either with commons-csv or with a byte tokenizer specialized for the Student layout,
+ * see {@link UploadOptions.Parser}. Compressed uploads are decoded while they are read, and the entries
+ * of a zip bundle are ingested in parallel, see {@link UploadOptions.Compression}.
+ * <p>
+ * An upload with an id is resumable: every chunk is committed together with a checkpoint, see
+ * {@link UploadCheckpointService}, and uploading the same content again with the same id skips the rows
+ * which were already committed.
+ * <p>
+ * Every rejected row is appended to the error report of the upload, see {@link ErrorReportService},
+ * while the summary only keeps the first ones.
+ * <p>
+ * Rows are validated before they are written, so they can be written with the native bulk load of the
+ * database instead of JDBC batches, see {@link UploadOptions.Writer}. They can also be merged with the
+ * existing students on a natural key, see {@link UploadOptions.Mode}.
+ * <p>
+ * With {@link UploadOptions#isDedup()}, the rows repeating a previous row of the file are rejected as duplicates,
+ * see {@link DuplicateRowDetector}. The entries of a zip bundle are deduplicated separately.
+ * <p>
+ * A dry run, see {@link UploadOptions#isDryRun()}, only parses and validates the upload, in parallel whenever the
+ * file can be split, and never uses the database: it has no checkpoint, no deduplication and writes no row.
+ * Its summary has the first rows violating each rule.
+ * <p>
+ * The time spent in each stage of the pipeline is added up per chunk, see {@link UploadMetrics}.
+ * <p>
+ * A spooled file can be read through memory-mapped windows instead of streams, see {@link UploadOptions#isMapped()}.
+ * <p>
+ * The chunks of a distributed upload are ingested by whichever node claims them, see {@link UploadChunkService}.
+ */
+@Service
+public class StudentUploadService {
+
+    private static final int COLUMN_COUNT = 3;
+
+    private static final String ENTITY_NAME = "upload";
+
+    private static final String COLUMN_COUNT_RULE = "columnCount";
+
+    private static final int MIN_SEGMENT_SIZE = 64 * 1024;
+
+    private static final int BOUNDARY_WINDOW_SIZE = 64 * 1024;
+
+    private static final int SCAN_WINDOW_SIZE = 1024 * 1024;
+
+    private final Logger log = LoggerFactory.getLogger(StudentUploadService.class);
+
+    private final StudentBulkIngestService studentBulkIngestService;
+
+    private final StudentRowValidator studentRowValidator;
+
+    private final UploadCheckpointService uploadCheckpointService;
+
+    private final ErrorReportService errorReportService;
+
+    private final UploadMetrics uploadMetrics;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final ForkJoinPool parsePool;
+
+    public StudentUploadService(StudentBulkIngestService studentBulkIngestService,
+            StudentRowValidator studentRowValidator, UploadCheckpointService uploadCheckpointService,
+            ErrorReportService errorReportService, UploadMetrics uploadMetrics,
+            ApplicationProperties applicationProperties) {
+        this.studentBulkIngestService = studentBulkIngestService;
+        this.studentRowValidator = studentRowValidator;
+        this.uploadCheckpointService = uploadCheckpointService;
+        this.errorReportService = errorReportService;
+        this.uploadMetrics = uploadMetrics;
+        this.applicationProperties = applicationProperties;
+        int parallelism = applicationProperties.getUpload().getParallelism();
+        this.parsePool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsePool.shutdownNow();
+    }
+
+    /**
+     * Ingest a CSV of students.
+     *
+     * @param csv the CSV content, with a header line
+     * @return the summary of the upload
+     * @throws IOException if the content cannot be read
+     */
+    public UploadSummaryDTO upload(InputStream csv) throws IOException {
+        return upload(csv, new UploadOptions(), new UploadProgress());
+    }
+
+    /**
+     * Ingest a CSV of students, reporting the progress as rows are processed.
+     * <p>
+     * If the progress is cancelled, ingestion stops with a {@link CancellationException};
+     * the chunks committed before the cancellation are kept.
+     * <p>
+     * If the options have an upload id, the upload resumes after the last line committed by a previous attempt.
+     *
+     * @param csv the CSV content, with a header line, compressed with the compression of the options
+     * @param options the options of the upload
+     * @param progress the progress to update
+     * @return the summary of the upload
+     * @throws IOException if the content cannot be read
+     */
+    public UploadSummaryDTO upload(InputStream csv, UploadOptions options, UploadProgress progress) throws IOException {
+        InputStream counted = new ProgressInputStream(csv, progress);
+        return upload(() -> openReader(options.getCompression().decode(counted), true, options), options, progress);
+    }
+
+    /**
+     * Ingest a line-aligned chunk of a CSV of students, queued by {@link UploadChunkService}.
+     * <p>
+     * The line numbers of the rejected rows are relative to the chunk. With an upload id, the chunk is
+     * checkpointed like a whole upload.
+     *
+     * @param chunk the uncompressed CSV content of the chunk
+     * @param header whether the chunk starts with the header line
+     * @param options the options of the upload
+     * @param progress the progress to update
+     * @return the summary of the chunk
+     * @throws IOException if the content cannot be read
+     */
+    public UploadSummaryDTO uploadChunk(InputStream chunk, boolean header, UploadOptions options,
+            UploadProgress progress) throws IOException {
+        InputStream counted = new ProgressInputStream(chunk, progress);
+        return upload(() -> openReader(counted, header, options), options, progress);
+    }
+
+    /**
+     * Ingest a spooled CSV file of students, reporting the progress as rows are processed.
+     * <p>
+     * With {@link UploadOptions#isMapped()}, an uncompressed CSV read with the tokenizer is read through
+     * memory-mapped windows of the file rather than a stream, see {@link ByteStudentCsvReader}.
+     * Otherwise, this is the same as reading the file as a stream.
+     *
+     * @param csvFile the CSV file, with a header line, compressed with the compression of the options
+     * @param options the options of the upload
+     * @param progress the progress to update
+     * @return the summary of the upload
+     * @throws IOException if the file cannot be read
+     */
+    public UploadSummaryDTO upload(Path csvFile, UploadOptions options, UploadProgress progress) throws IOException {
+        if (!isMapped(options)) {
+            try (InputStream in = Files.newInputStream(csvFile)) {
+                return upload(in, options, progress);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            return upload(() -> new ByteStudentCsvReader(channel, 0, channel.size(), true, progress::bytesRead),
+                options, progress);
+        }
+    }
+
+    private UploadSummaryDTO upload(ReaderOpener opener, UploadOptions options, UploadProgress progress)
+            throws IOException {
+        return upload(opener, options, progress, null);
+    }
+
+    /**
+     * Ingest the records of a reader, as a whole upload or as an entry of a zip bundle.
+     *
+     * @param writers the permits of the entries of a zip bundle to write chunks, or null for a whole upload
+     */
+    private UploadSummaryDTO upload(ReaderOpener opener, UploadOptions options, UploadProgress progress,
+            Semaphore writers) throws IOException {
+        UploadCheckpointDTO checkpoint = options.getUploadId() != null && !options.isDryRun()
+            ? uploadCheckpointService.start(options.getUploadId(), getCheckpointParser(options)) : null;
+        long resumedAfterLine = checkpoint != null ? checkpoint.getLineNumber() : 0;
+        if (checkpoint != null && checkpoint.isCompleted()) {
+            log.info("Upload {} is already completed", checkpoint.getUploadId());
+            UploadSummaryDTO summary = summarize(Collections.emptyList(), progress, options);
+            summary.setResumedAfterLine(resumedAfterLine);
+            return summary;
+        }
+
+        progress.start();
+        try (ErrorReport report = errorReportService.create(options.getReportId());
+                StudentCsvReader reader = opener.open()) {
+            SegmentResult result = ingest(reader, options, progress, checkpoint, report,
+                newDuplicateRowDetector(options), writers);
+            UploadSummaryDTO summary = summarize(Collections.singletonList(result), progress, options);
+            summary.setResumedAfterLine(resumedAfterLine);
+            setErrorReport(summary, report);
+            return summary;
+        } catch (CancellationException e) {
+            throw e;
+        } catch (IllegalStateException e) {
+            throw malformed(progress, e);
+        } finally {
+            progress.finish();
+        }
+    }
+
+    /**
+     * Ingest a CSV file of students in parallel, line-aligned segments.
+     * <p>
+     * Rejected rows are still reported in file order, with their line numbers in the whole file. At most
+     * application.upload.writers segments write their chunks at once, whatever the parallelism of the parsing.
+     * <p>
+     * A checkpoint records a single position and a compressed file cannot be split, so resumable and
+     * compressed uploads are ingested sequentially instead. So are merge uploads, as concurrent chunks would
+     * both insert a key missing from the database. A dry run writes nothing, so only compression prevents it from
+     * being split. So is a CSV with a line feed inside a quoted field, which a segment boundary would split.
+     * A zip bundle is ingested entry by entry.
+     *
+     * @param csvFile the CSV file, with a header line
+     * @param options the options of the upload
+     * @param progress the progress to update
+     * @return the summary of the upload
+     * @throws IOException if the file cannot be read
+     */
+    public UploadSummaryDTO uploadParallel(Path csvFile, UploadOptions options, UploadProgress progress)
+            throws IOException {
+        if (options.getCompression() == UploadOptions.Compression.ZIP) {
+            return uploadZip(csvFile, options, progress);
+        }
+        boolean writesSequentially = options.getUploadId() != null || options.getMode() == UploadOptions.Mode.MERGE;
+        if (options.getCompression() != UploadOptions.Compression.NONE || (writesSequentially && !options.isDryRun())) {
+            return upload(csvFile, options, progress);
+        }
+        List<FileSegment> segments;
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            if (options.getFormat() == UploadOptions.Format.CSV && hasQuotedLineFeed(channel)) {
+                log.info("{} has line feeds in quoted fields, ingesting it sequentially", csvFile);
+                return upload(csvFile, options, progress);
+            }
+            segments = splitLineAligned(channel, parsePool.getParallelism());
+        }
+        log.debug("Ingesting {} in {} segments", csvFile, segments.size());
+        if (segments.isEmpty()) {
+            return summarize(Collections.emptyList(), progress, options);
+        }
+
+        progress.start();
+        ErrorReport report = null;
+        List<ErrorReport> reportParts = new ArrayList<>(segments.size());
+        try {
+            report = errorReportService.create(options.getReportId());
+            for (FileSegment segment : segments) {
+                reportParts.add(errorReportService.createPart(report, segment.index));
+            }
+            List<SegmentResult> results = parsePool.invoke(new SegmentTask(csvFile, segments, 0, segments.size(),
+                options, progress, reportParts, newDuplicateRowDetector(options), newWriters()));
+            long lineOffset = 0;
+            for (int i = 0; i < results.size(); i++) {
+                reportParts.get(i).close();
+                report.appendAll(reportParts.get(i), lineOffset);
+                lineOffset += results.get(i).lineCount;
+            }
+            UploadSummaryDTO summary = summarize(results, progress, options);
+            setErrorReport(summary, report);
+            return summary;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (CancellationException e) {
+            throw e;
+        } catch (IllegalStateException e) {
+            throw malformed(progress, e);
+        } finally {
+            reportParts.forEach(errorReportService::deletePart);
+            if (report != null) {
+                report.close();
+            }
+            progress.finish();
+        }
+    }
+
+    /**
+     * Ingest a zip bundle of CSV files of students, its entries being ingested in parallel.
+     * <p>
+     * Every CSV entry, plain or compressed, is ingested as a separate upload with its own summary; the other
+     * entries are ignored. With an upload id, every entry is checkpointed separately. The entries of a merge
+     * upload are ingested one after the other. As for segments, at most application.upload.writers entries write
+     * their chunks at once.
+     *
+     * @param zipFile the zip file
+     * @param options the options of the upload
+     * @param progress the progress to update, with the totals of all the entries
+     * @return the summary of the upload, with the summaries of the entries
+     * @throws IOException if the file cannot be read
+     */
+    public UploadSummaryDTO uploadZip(Path zipFile, UploadOptions options, UploadProgress progress) throws IOException {
+        progress.start();
+        try (ZipFile zip = new ZipFile(zipFile.toFile(), StandardCharsets.UTF_8)) {
+            List<Callable<UploadSummaryDTO>> entryTasks = new ArrayList<>();
+            Semaphore writers = newWriters();
+            long expectedBytes = 0;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                UploadOptions.Compression compression = UploadOptions.Compression.fromFileName(entry.getName());
+                if (entry.isDirectory() || compression == null || compression == UploadOptions.Compression.ZIP) {
+                    log.debug("Ignoring zip entry {}", entry.getName());
+                    continue;
+                }
+                UploadOptions entryOptions = options.copy().compression(compression).parallel(false)
+                    .uploadId(entryUploadId(options.getUploadId(), entryTasks.size()));
+                UploadProgress entryProgress = progress.child();
+                entryTasks.add(() -> uploadEntry(zip, entry, entryOptions, entryProgress, writers));
+                expectedBytes += Math.max(entry.getSize(), 0);
+            }
+            if (options.getUploadId() != null && !entryTasks.isEmpty()) {
+                // the id of the last entry has the longest suffix
+                int maxLength = UploadCheckpointService.UPLOAD_ID_MAX_LENGTH -
+                    entryUploadId("", entryTasks.size() - 1).length();
+                if (options.getUploadId().length() > maxLength) {
+                    throw new BadRequestAlertException("The upload id of a zip bundle of " + entryTasks.size() +
+                        " entries must have at most " + maxLength + " characters", ENTITY_NAME, "invaliduploadid");
+                }
+            }
+            // the entries count the bytes they read once inflated
+            progress.expectBytes(expectedBytes);
+            log.debug("Ingesting {} in {} entries", zipFile, entryTasks.size());
+
+            List<UploadSummaryDTO> entrySummaries = new ArrayList<>(entryTasks.size());
+            if (options.getMode() == UploadOptions.Mode.MERGE) {
+                // the entries of a merge upload may share keys, so they are merged one after the other
+                for (Callable<UploadSummaryDTO> entryTask : entryTasks) {
+                    entrySummaries.add(getEntrySummary(parsePool.submit(entryTask)));
+                }
+            } else {
+                for (Future<UploadSummaryDTO> future : parsePool.invokeAll(entryTasks)) {
+                    entrySummaries.add(getEntrySummary(future));
+                }
+            }
+            UploadSummaryDTO summary = summarize(Collections.emptyList(), progress, options);
+            summary.setEntries(entrySummaries);
+            summary.setErrorsTruncated(entrySummaries.stream().anyMatch(UploadSummaryDTO::isErrorsTruncated));
+            return summary;
+        } finally {
+            progress.finish();
+        }
+    }
+
+    /**
+     * Every entry of a resumable zip bundle is checkpointed with the upload id suffixed by its index.
+     */
+    private static String entryUploadId(String uploadId, int index) {
+        return uploadId != null ? uploadId + "#" + index : null;
+    }
+
+    private UploadSummaryDTO uploadEntry(ZipFile zip, ZipEntry entry, UploadOptions options, UploadProgress progress,
+            Semaphore writers) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            InputStream counted = new ProgressInputStream(in, progress);
+            UploadSummaryDTO summary = upload(() -> openReader(options.getCompression().decode(counted), true, options),
+                options, progress, writers);
+            summary.setFileName(entry.getName());
+            return summary;
+        }
+    }
+
+    private static UploadSummaryDTO getEntrySummary(Future<UploadSummaryDTO> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the zip entries");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private StudentCsvReader openReader(InputStream in, boolean skipHeader, UploadOptions options) throws IOException {
+        if (options.getFormat() == UploadOptions.Format.NDJSON) {
+            return new NdjsonStudentReader(in);
+        }
+        if (getParser(options) == UploadOptions.Parser.TOKENIZER) {
+            return new ByteStudentCsvReader(in, skipHeader);
+        }
+        return new CommonsStudentCsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)),
+            skipHeader);
+    }
+
+    private UploadOptions.Parser getParser(UploadOptions options) {
+        return options.getParser() != null ? options.getParser() : applicationProperties.getUpload().getParser();
+    }
+
+    /**
+     * The line numbers of a checkpoint depend on the CSV parser, the other formats have one record per line.
+     */
+    private UploadOptions.Parser getCheckpointParser(UploadOptions options) {
+        return options.getFormat() == UploadOptions.Format.CSV ? getParser(options) : null;
+    }
+
+    /**
+     * Only the tokenizer reads mapped bytes, and compressed content has to be decoded as a stream.
+     */
+    private boolean isMapped(UploadOptions options) {
+        return options.isMapped() && options.getFormat() == UploadOptions.Format.CSV
+            && options.getCompression() == UploadOptions.Compression.NONE
+            && getParser(options) == UploadOptions.Parser.TOKENIZER;
+    }
+
+    /**
+     * Parse, validate and persist the records of a reader.
+     * <p>
+     * Rejected rows are reported with line numbers relative to the start of the read content.
+     * With a checkpoint, the rows up to its line are skipped and each chunk moves the checkpoint.
+     * The time a row spends in reader.next() is its parse time.
+     */
+    private SegmentResult ingest(StudentCsvReader reader, UploadOptions options, UploadProgress progress,
+            UploadCheckpointDTO checkpoint, ErrorReport report, DuplicateRowDetector detector, Semaphore writers)
+            throws IOException {
+        int batchSize = applicationProperties.getUpload().getBatchSize();
+        int maxReportedErrors = applicationProperties.getUpload().getMaxReportedErrors();
+        SegmentResult result = new SegmentResult(uploadMetrics);
+        UploadMetrics.Recorder recorder = uploadMetrics.recorder(progress);
+        List<StudentDTO> chunk = new ArrayList<>(batchSize);
+        long resumeAfterLine = checkpoint != null ? checkpoint.getLineNumber() : 0;
+
+        for (long parseStart = System.nanoTime(); reader.next(); parseStart = System.nanoTime()) {
+            long parseEnd = System.nanoTime();
+            progress.checkNotCancelled();
+            if (reader.getLineNumber() <= resumeAfterLine) {
+                continue;
+            }
+            progress.rowParsed();
+            recorder.parsed(parseEnd - parseStart);
+            if (reader.getFieldCount() < COLUMN_COUNT) {
+                String message = "expected " + COLUMN_COUNT + " columns";
+                RejectedRowDTO rejectedRow = new RejectedRowDTO(reader.getLineNumber(),
+                    RejectedRowDTO.Code.COLUMN_COUNT, reader.getContent(), message);
+                result.reject(maxReportedErrors, progress, report, rejectedRow);
+                if (options.isDryRun()) {
+                    result.violated(maxReportedErrors, COLUMN_COUNT_RULE, rejectedRow, message);
+                }
+                continue;
+            }
+            // the readers decode, trim and convert the fields on demand, so this is the whole mapping of the record
+            StudentDTO studentObj = new StudentDTO(reader.getFirstName(), reader.getLastName(), reader.getAge());
+            long mapEnd = System.nanoTime();
+            recorder.mapped(mapEnd - parseEnd);
+            boolean valid = studentRowValidator.isValid(studentObj);
+            recorder.validated(System.nanoTime() - mapEnd);
+
+            if (!valid) {
+                Map<String, String> violations = studentRowValidator.describeViolationsByRule(studentObj);
+                RejectedRowDTO rejectedRow = new RejectedRowDTO(reader.getLineNumber(), RejectedRowDTO.Code.INVALID,
+                    reader.getContent(), String.join("  &  ", violations.values()));
+                result.reject(maxReportedErrors, progress, report, rejectedRow);
+                if (options.isDryRun()) {
+                    violations.forEach((rule, message) ->
+                        result.violated(maxReportedErrors, rule, rejectedRow, message));
+                }
+            } else if (detector != null && !detector.accept(studentObj)) {
+                result.reject(maxReportedErrors, progress, report, new RejectedRowDTO(reader.getLineNumber(),
+                    RejectedRowDTO.Code.DUPLICATE, reader.getContent(), "repeats a previous row"));
+            } else {
+                chunk.add(studentObj);
+                if (chunk.size() == batchSize) {
+                    recorder.record();
+                    progress.rowsInserted(saveChunk(chunk, options, progress, checkpoint, reader.getLineNumber(),
+                        false, writers));
+                    written(detector, chunk);
+                    chunk.clear();
+                }
+            }
+        }
+        recorder.record();
+        if (!chunk.isEmpty() || checkpoint != null) {
+            progress.checkNotCancelled();
+            long lineNumber = Math.max(reader.getLineCount(), resumeAfterLine);
+            progress.rowsInserted(saveChunk(chunk, options, progress, checkpoint, lineNumber, true, writers));
+            written(detector, chunk);
+        }
+        result.lineCount = reader.getLineCount();
+        return result;
+    }
+
+    private DuplicateRowDetector newDuplicateRowDetector(UploadOptions options) {
+        if (!options.isDedup() || options.isDryRun()) {
+            return null;
+        }
+        ApplicationProperties.Upload.Dedup dedup = applicationProperties.getUpload().getDedup();
+        OffHeapBloomFilter bloomFilter = new OffHeapBloomFilter(dedup.getExpectedRows(), dedup.getFalsePositiveRate());
+        log.debug("Deduplicating rows with a Bloom filter of {} bytes", bloomFilter.getSizeInBytes());
+        return new DuplicateRowDetector(bloomFilter, studentBulkIngestService::findIds);
+    }
+
+    private static void written(DuplicateRowDetector detector, List<StudentDTO> chunk) {
+        if (detector != null) {
+            detector.written(chunk);
+        }
+    }
+
+    private int saveChunk(List<StudentDTO> chunk, UploadOptions options, UploadProgress progress,
+            UploadCheckpointDTO checkpoint, long lineNumber, boolean last, Semaphore writers) {
+        if (writers == null || options.isDryRun()) {
+            return saveChunk(chunk, options, progress, checkpoint, lineNumber, last);
+        }
+        try {
+            writers.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting to write a chunk");
+        }
+        try {
+            return saveChunk(chunk, options, progress, checkpoint, lineNumber, last);
+        } finally {
+            writers.release();
+        }
+    }
+
+    private int saveChunk(List<StudentDTO> chunk, UploadOptions options, UploadProgress progress,
+            UploadCheckpointDTO checkpoint, long lineNumber, boolean last) {
+        if (checkpoint == null) {
+            return writeChunk(chunk, options, progress);
+        }
+        return uploadCheckpointService.commit(checkpoint, lineNumber, last,
+            () -> chunk.isEmpty() ? 0 : writeChunk(chunk, options, progress));
+    }
+
+    /**
+     * Get the permits of the parts of an upload to write chunks, each write holding a database connection.
+     * <p>
+     * The parse pool can run as many parts of an upload as it has threads, so without them an upload could take
+     * that many connections, while the admission of uploads counts one per upload.
+     */
+    private Semaphore newWriters() {
+        return new Semaphore(Math.max(applicationProperties.getUpload().getWriters(), 1));
+    }
+
+    private int writeChunk(List<StudentDTO> chunk, UploadOptions options, UploadProgress progress) {
+        if (options.isDryRun()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        int inserted;
+        if (options.getMode() == UploadOptions.Mode.MERGE) {
+            StudentBulkIngestService.MergeResult merged = studentBulkIngestService.mergeChunk(chunk,
+                applicationProperties.getUpload().getMergeKey());
+            inserted = merged.getInsertedRows();
+            progress.rowsUpdated(merged.getUpdatedRows());
+        } else if (options.getWriter() == UploadOptions.Writer.NATIVE) {
+            inserted = studentBulkIngestService.loadChunk(chunk);
+        } else {
+            inserted = studentBulkIngestService.saveChunk(chunk);
+        }
+        uploadMetrics.persisted(chunk.size(), System.nanoTime() - start);
+        return inserted;
+    }
+
+    private SegmentResult ingest(Path csvFile, FileSegment segment, UploadOptions options, UploadProgress progress,
+            ErrorReport reportPart, DuplicateRowDetector detector, Semaphore writers) {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            // the line numbers of a segment are only known once the previous segments are read,
+            // so its rejected rows are counted but not reported to the listener
+            UploadProgress segmentProgress = progress.child();
+            StudentCsvReader segmentReader;
+            if (isMapped(options)) {
+                segmentReader = new ByteStudentCsvReader(channel, segment.start, segment.end, segment.index == 0,
+                    segmentProgress::bytesRead);
+            } else {
+                channel.position(segment.start);
+                InputStream in = new ProgressInputStream(new BoundedInputStream(Channels.newInputStream(channel),
+                    segment.end - segment.start), segmentProgress);
+                segmentReader = openReader(in, segment.index == 0, options);
+            }
+            try (StudentCsvReader reader = segmentReader) {
+                return ingest(reader, options, segmentProgress, null, reportPart, detector, writers);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UploadSummaryDTO summarize(List<SegmentResult> results, UploadProgress progress, UploadOptions options) {
+        int maxReportedErrors = applicationProperties.getUpload().getMaxReportedErrors();
+        UploadSummaryDTO summary = new UploadSummaryDTO();
+        Map<String, RuleViolationsDTO> violations = new LinkedHashMap<>();
+        long lineOffset = 0;
+        for (SegmentResult result : results) {
+            for (RuleViolationsDTO segmentViolations : result.violations.values()) {
+                RuleViolationsDTO ruleViolations = violations.computeIfAbsent(segmentViolations.getRule(),
+                    RuleViolationsDTO::new);
+                ruleViolations.setCount(ruleViolations.getCount() + segmentViolations.getCount());
+                for (RejectedRowDTO row : segmentViolations.getRows()) {
+                    if (ruleViolations.getRows().size() < maxReportedErrors) {
+                        row.setLineNumber(lineOffset + row.getLineNumber());
+                        ruleViolations.getRows().add(row);
+                    }
+                }
+            }
+            for (RejectedRowDTO rejectedRow : result.rejectedRows) {
+                if (summary.getErrors().size() < maxReportedErrors) {
+                    rejectedRow.setLineNumber(lineOffset + rejectedRow.getLineNumber());
+                    summary.getErrors().add(rejectedRow);
+                }
+            }
+            lineOffset += result.lineCount;
+        }
+        summary.setParsedRows(progress.getParsedRows());
+        summary.setInsertedRows(progress.getInsertedRows());
+        summary.setUpdatedRows(progress.getUpdatedRows());
+        summary.setRejectedRows(progress.getRejectedRows());
+        summary.setErrorsTruncated(summary.getRejectedRows() > summary.getErrors().size());
+        if (options.isDryRun()) {
+            summary.setDryRun(true);
+            summary.setViolations(new ArrayList<>(violations.values()));
+        }
+        log.info("Upload processed: {}", summary);
+        return summary;
+    }
+
+    /**
+     * Reference the error report from the summary, unless no row was rejected: such a report has no file, so it
+     * could not be found again after a restart.
+     */
+    private static void setErrorReport(UploadSummaryDTO summary, ErrorReport report) {
+        if (report.getRowCount() > 0) {
+            summary.setErrorReportId(report.getId());
+        }
+    }
+
+    private BadRequestAlertException malformed(UploadProgress progress, IllegalStateException e) {
+        // CSV readers report malformed content through unchecked exceptions
+        log.warn("Malformed CSV upload after {} rows: {}", progress.getParsedRows(), e.getMessage());
+        return new BadRequestAlertException("Malformed CSV content after row " + progress.getParsedRows(),
+            ENTITY_NAME, "malformedcsv");
+    }
+
+    /**
+     * Split a file in about count segments, each one ending right after a line feed.
+     */
+    static List<FileSegment> splitLineAligned(FileChannel channel, int count) throws IOException {
+        return splitBySize(channel, Math.max(channel.size() / Math.max(count, 1), MIN_SEGMENT_SIZE));
+    }
+
+    /**
+     * Split a file in segments of about targetSize bytes, each one ending right after a line feed.
+     */
+    static List<FileSegment> splitBySize(FileChannel channel, long targetSize) throws IOException {
+        long size = channel.size();
+        List<FileSegment> segments = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = start + targetSize >= size ? size : nextLineStart(channel, start + targetSize);
+            segments.add(new FileSegment(segments.size(), start, end));
+            start = end;
+        }
+        return segments;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            // the bytes are scanned in a mapped window of the file, without being copied to the heap
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(size - position, BOUNDARY_WINDOW_SIZE));
+            for (int i = 0; i < window.limit(); i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += window.limit();
+        }
+        return size;
+    }
+
+    /**
+     * Whether a CSV has a line feed inside a quoted field, an escaped quote being two quotes.
+     */
+    static boolean hasQuotedLineFeed(FileChannel channel) throws IOException {
+        long size = channel.size();
+        boolean quoted = false;
+        for (long position = 0; position < size; ) {
+            // the bytes are scanned in a mapped window of the file, without being copied to the heap
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(size - position, SCAN_WINDOW_SIZE));
+            for (int i = 0; i < window.limit(); i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && quoted) {
+                    return true;
+                }
+            }
+            position += window.limit();
+        }
+        return false;
+    }
+
+    /**
+     * Opener of the reader of an upload, once the upload is known to need reading.
+     */
+    @FunctionalInterface
+    private interface ReaderOpener {
+
+        StudentCsvReader open() throws IOException;
+    }
+
+    static final class FileSegment {
+
+        final int index;
+
+        final long start;
+
+        final long end;
+
+        FileSegment(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Outcome of ingesting a segment: its first rejected rows, and for a dry run its first rows violating each rule,
+     * with line numbers relative to the segment.
+     */
+    private static final class SegmentResult {
+
+        private final UploadMetrics uploadMetrics;
+
+        private final List<RejectedRowDTO> rejectedRows = new ArrayList<>();
+
+        private final Map<String, RuleViolationsDTO> violations = new LinkedHashMap<>();
+
+        private long lineCount;
+
+        private SegmentResult(UploadMetrics uploadMetrics) {
+            this.uploadMetrics = uploadMetrics;
+        }
+
+        private void reject(int maxReportedErrors, UploadProgress progress, ErrorReport report,
+                RejectedRowDTO rejectedRow) throws IOException {
+            progress.rowRejected(rejectedRow);
+            uploadMetrics.rowRejected();
+            report.append(rejectedRow);
+            if (rejectedRows.size() < maxReportedErrors) {
+                rejectedRows.add(rejectedRow);
+            }
+        }
+
+        private void violated(int maxReportedErrors, String rule, RejectedRowDTO rejectedRow, String message) {
+            RuleViolationsDTO ruleViolations = violations.computeIfAbsent(rule, RuleViolationsDTO::new);
+            ruleViolations.setCount(ruleViolations.getCount() + 1);
+            if (ruleViolations.getRows().size() < maxReportedErrors) {
+                // a copy, as the line numbers of the rejected rows and of the violations are shifted separately
+                ruleViolations.getRows().add(new RejectedRowDTO(rejectedRow.getLineNumber(), rejectedRow.getCode(),
+                    rejectedRow.getContent(), message));
+            }
+        }
+    }
+
+    private final class SegmentTask extends RecursiveTask<List<SegmentResult>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path csvFile;
+
+        private final List<FileSegment> segments;
+
+        private final int from;
+
+        private final int to;
+
+        private final UploadOptions options;
+
+        private final UploadProgress progress;
+
+        private final List<ErrorReport> reportParts;
+
+        private final DuplicateRowDetector detector;
+
+        private final Semaphore writers;
+
+        private SegmentTask(Path csvFile, List<FileSegment> segments, int from, int to, UploadOptions options,
+                UploadProgress progress, List<ErrorReport> reportParts, DuplicateRowDetector detector,
+                Semaphore writers) {
+            this.csvFile = csvFile;
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.options = options;
+            this.progress = progress;
+            this.reportParts = reportParts;
+            this.detector = detector;
+            this.writers = writers;
+        }
+
+        @Override
+        protected List<SegmentResult> compute() {
+            if (to - from == 1) {
+                return Collections.singletonList(ingest(csvFile, segments.get(from), options, progress,
+                    reportParts.get(from), detector, writers));
+            }
+            int middle = (from + to) >>> 1;
+            SegmentTask left = new SegmentTask(csvFile, segments, from, middle, options, progress, reportParts,
+                detector, writers);
+            left.fork();
+            List<SegmentResult> right = new SegmentTask(csvFile, segments, middle, to, options, progress, reportParts,
+                detector, writers).compute();
+            List<SegmentResult> results = new ArrayList<>(left.join());
+            results.addAll(right);
+            return results;
+        }
+    }
+}
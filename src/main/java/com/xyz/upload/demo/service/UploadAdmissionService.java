@@ -0,0 +1,115 @@
+package com.xyz.upload.demo.service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.web.rest.errors.TooManyUploadsException;
+
+/**
+ * Service limiting the number of uploads ingested at the same time.
+ * <p>
+ * Upload requests wait in a small queue for a permit, and are rejected with a
+ * {@link TooManyUploadsException} when the queue is full or the wait times out,
+ * so that concurrent uploads cannot exhaust the datasource pool.
+ */
+@Service
+public class UploadAdmissionService {
+
+    private static final String METRIC_PREFIX = "upload.admission.";
+
+    private final Logger log = LoggerFactory.getLogger(UploadAdmissionService.class);
+
+    private final ApplicationProperties.Upload.Admission admission;
+
+    private final Semaphore permits;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Meter rejected;
+
+    public UploadAdmissionService(ApplicationProperties applicationProperties, MetricRegistry metricRegistry) {
+        this.admission = applicationProperties.getUpload().getAdmission();
+        this.permits = new Semaphore(admission.getMaxConcurrent(), true);
+        metricRegistry.register(METRIC_PREFIX + "active",
+            (Gauge<Integer>) () -> admission.getMaxConcurrent() - permits.availablePermits());
+        metricRegistry.register(METRIC_PREFIX + "queued", (Gauge<Integer>) queued::get);
+        this.rejected = metricRegistry.meter(METRIC_PREFIX + "rejected");
+    }
+
+    /**
+     * Get a permit for an upload request, waiting in the queue if needed.
+     *
+     * @return the permit, to close once the upload is ingested
+     * @throws TooManyUploadsException if the queue is full or no permit was released in time
+     */
+    public Permit admit() {
+        if (permits.tryAcquire()) {
+            return new Permit();
+        }
+        if (queued.incrementAndGet() > admission.getMaxQueued()) {
+            queued.decrementAndGet();
+            throw reject();
+        }
+        try {
+            if (permits.tryAcquire(admission.getQueueTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                return new Permit();
+            }
+            throw reject();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw reject();
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Get a permit for an upload which was already accepted, for instance a queued job, waiting as long as needed.
+     *
+     * @return the permit, to close once the upload is ingested
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Permit await() throws InterruptedException {
+        permits.acquire();
+        return new Permit();
+    }
+
+    public long getRetryAfterSeconds() {
+        return admission.getRetryAfterSeconds();
+    }
+
+    private TooManyUploadsException reject() {
+        rejected.mark();
+        log.warn("Upload rejected, {} uploads in progress and {} queued",
+            admission.getMaxConcurrent() - permits.availablePermits(), queued.get());
+        return new TooManyUploadsException(admission.getRetryAfterSeconds());
+    }
+
+    /**
+     * Permit to ingest an upload, released when closed.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.xyz.upload.demo.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.service.dto.UploadCheckpointDTO;
+import com.xyz.upload.demo.web.rest.errors.BadRequestAlertException;
+
+/**
+ * Service for managing the checkpoints of resumable Student uploads.
+ * <p>
+ * A checkpoint records the last line of the upload whose chunk is committed. It is updated in the same
+ * transaction as the chunk, so after a failure or a restart the upload resumes exactly after the rows
+ * which are already in the database.
+ * <p>
+ * The commons-csv parser numbers records while the tokenizer numbers physical lines, which differ when a quoted
+ * field spans lines, so a checkpoint records its parser and can only be resumed with the same one.
+ */
+@Service
+public class UploadCheckpointService {
+
+    public static final int UPLOAD_ID_MAX_LENGTH = 64;
+
+    private static final String SELECT_SQL = "select upload_id, line_number, parser, chunk_count, inserted_rows, " +
+        "completed, created_date, last_modified_date from upload_checkpoint where upload_id = ?";
+
+    private static final String INSERT_SQL = "insert into upload_checkpoint (upload_id, line_number, parser, " +
+        "chunk_count, inserted_rows, completed, created_date, last_modified_date) values (?, 0, ?, 0, 0, ?, ?, ?)";
+
+    private static final String UPDATE_SQL = "update upload_checkpoint set line_number = ?, " +
+        "chunk_count = chunk_count + 1, inserted_rows = inserted_rows + ?, completed = ?, last_modified_date = ? " +
+        "where upload_id = ? and line_number = ? and completed = ?";
+
+    private static final String DELETE_OLD_SQL = "delete from upload_checkpoint where last_modified_date < ?";
+
+    private final Logger log = LoggerFactory.getLogger(UploadCheckpointService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties applicationProperties;
+
+    public UploadCheckpointService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ApplicationProperties applicationProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.applicationProperties = applicationProperties;
+    }
+
+    /**
+     * Get the checkpoint of an upload.
+     *
+     * @param uploadId the client id of the upload
+     * @return the checkpoint, or empty if the upload never started
+     */
+    public Optional<UploadCheckpointDTO> findOne(String uploadId) {
+        List<UploadCheckpointDTO> checkpoints = jdbcTemplate.query(SELECT_SQL, UploadCheckpointService::toDto, uploadId);
+        return checkpoints.stream().findFirst();
+    }
+
+    /**
+     * Get the checkpoint of an upload, creating it if the upload never started.
+     *
+     * @param uploadId the client id of the upload
+     * @param parser the CSV parser of the upload, or null if the upload is not a CSV
+     * @return the checkpoint to resume from
+     * @throws BadRequestAlertException if the upload was started with another parser
+     */
+    public UploadCheckpointDTO start(String uploadId, UploadOptions.Parser parser) {
+        if (uploadId.isEmpty() || uploadId.length() > UPLOAD_ID_MAX_LENGTH) {
+            throw new BadRequestAlertException("The upload id must have 1 to " + UPLOAD_ID_MAX_LENGTH + " characters",
+                "upload", "invaliduploadid");
+        }
+        Optional<UploadCheckpointDTO> existing = findOne(uploadId);
+        if (existing.isPresent()) {
+            log.info("Resuming upload {} after line {}", uploadId, existing.get().getLineNumber());
+            return checkParser(existing.get(), parser);
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        try {
+            jdbcTemplate.update(INSERT_SQL, uploadId, parser != null ? parser.name() : null, false, now, now);
+        } catch (DuplicateKeyException e) {
+            log.debug("Upload {} was started concurrently", uploadId);
+        }
+        return checkParser(findOne(uploadId)
+            .orElseThrow(() -> new IllegalStateException("Checkpoint of " + uploadId + " not found")), parser);
+    }
+
+    private static UploadCheckpointDTO checkParser(UploadCheckpointDTO checkpoint, UploadOptions.Parser parser) {
+        if (checkpoint.getParser() != null && parser != null && checkpoint.getParser() != parser) {
+            throw new BadRequestAlertException("Upload " + checkpoint.getUploadId() + " was started with the " +
+                checkpoint.getParser() + " parser and cannot be resumed with another one", "upload", "parsermismatch");
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Write a chunk and move the checkpoint past it, in a single transaction.
+     *
+     * @param checkpoint the checkpoint of the upload, updated once the transaction is committed
+     * @param lineNumber the line of the last row of the chunk
+     * @param completed whether the chunk is the last one of the upload
+     * @param chunkWriter the writer of the chunk, returning the number of inserted rows
+     * @return the number of inserted rows
+     * @throws OptimisticLockingFailureException if the checkpoint was moved by a concurrent attempt of the same upload
+     */
+    public int commit(UploadCheckpointDTO checkpoint, long lineNumber, boolean completed, Supplier<Integer> chunkWriter) {
+        Instant now = Instant.now();
+        Integer inserted = transactionTemplate.execute(status -> {
+            int count = chunkWriter.get();
+            int updated = jdbcTemplate.update(UPDATE_SQL, lineNumber, count, completed, Timestamp.from(now),
+                checkpoint.getUploadId(), checkpoint.getLineNumber(), false);
+            if (updated != 1) {
+                throw new OptimisticLockingFailureException("Upload " + checkpoint.getUploadId() +
+                    " was moved past line " + checkpoint.getLineNumber() + " by another attempt");
+            }
+            return count;
+        });
+        int count = inserted == null ? 0 : inserted;
+        checkpoint.setLineNumber(lineNumber);
+        checkpoint.setChunkCount(checkpoint.getChunkCount() + 1);
+        checkpoint.setInsertedRows(checkpoint.getInsertedRows() + count);
+        checkpoint.setCompleted(completed);
+        checkpoint.setLastModifiedDate(now);
+        return count;
+    }
+
+    /**
+     * Remove the checkpoints which were not updated for checkpointRetentionDays.
+     * <p>
+     * This is scheduled to get fired everyday, at 02:00 (am).
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void removeOldCheckpoints() {
+        Instant limit = Instant.now().minus(applicationProperties.getUpload().getCheckpointRetentionDays(), ChronoUnit.DAYS);
+        int removed = jdbcTemplate.update(DELETE_OLD_SQL, Timestamp.from(limit));
+        log.debug("Removed {} upload checkpoints", removed);
+    }
+
+    private static UploadCheckpointDTO toDto(ResultSet rs, int rowNum) throws SQLException {
+        UploadCheckpointDTO checkpoint = new UploadCheckpointDTO();
+        checkpoint.setUploadId(rs.getString("upload_id"));
+        checkpoint.setLineNumber(rs.getLong("line_number"));
+        String parser = rs.getString("parser");
+        checkpoint.setParser(parser != null ? UploadOptions.Parser.valueOf(parser) : null);
+        checkpoint.setChunkCount(rs.getInt("chunk_count"));
+        checkpoint.setInsertedRows(rs.getLong("inserted_rows"));
+        checkpoint.setCompleted(rs.getBoolean("completed"));
+        checkpoint.setCreatedDate(rs.getTimestamp("created_date").toInstant());
+        checkpoint.setLastModifiedDate(rs.getTimestamp("last_modified_date").toInstant());
+        return checkpoint;
+    }
+}
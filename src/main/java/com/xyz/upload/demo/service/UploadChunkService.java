@@ -0,0 +1,569 @@
+package com.xyz.upload.demo.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+import com.xyz.upload.demo.service.dto.UploadSummaryDTO;
+
+/**
+ * Service for ingesting large uploads on every node sharing the database.
+ * <p>
+ * A distributed upload is split into line-aligned chunks which are queued in the upload_chunk table. Every node
+ * polls the queue, claims the pending chunks and ingests each one with its own checkpoint, so a chunk claimed again
+ * after a failure resumes after its committed rows. The node which queued the upload waits for its chunks, adds up
+ * their summaries and removes them.
+ * <p>
+ * A chunk is claimed with SELECT ... FOR UPDATE SKIP LOCKED when the database supports it (MySQL 8, PostgreSQL),
+ * so the nodes never wait on each other's claims. Other databases, such as H2 and MySQL 5.7, claim with an update
+ * conditioned on the pending status, which only one node can win. A claim which is not completed within
+ * claimTimeoutMinutes, because its node stopped, is released for another node, up to maxAttempts.
+ * <p>
+ * Only an uncompressed CSV inserted without deduplication can be distributed: a merge or a deduplication needs the
+ * whole upload, and a compressed file cannot be split. The rows rejected by a node are kept in its own error reports,
+ * so the summary of a distributed upload has its first rejected rows but no error report.
+ * <p>
+ * Chunks are split at line feeds and their line numbers are counted in line feeds, so a CSV with a line feed inside
+ * a quoted field cannot be distributed either: the file is scanned before being queued, and such a CSV is ingested
+ * by the node which received it.
+ */
+@Service
+public class UploadChunkService {
+
+    /**
+     * The ways of claiming a chunk, depending on the database.
+     */
+    enum ClaimStrategy {
+        /** Lock the first pending chunk, skipping the chunks locked by other nodes. */
+        SKIP_LOCKED,
+        /** Update a pending chunk only if it is still pending. */
+        CONDITIONAL_UPDATE
+    }
+
+    private enum Status {
+        PENDING, CLAIMED, DONE, FAILED
+    }
+
+    private static final String CHUNK_ID_SEPARATOR = "#";
+
+    private static final int CANDIDATE_COUNT = 10;
+
+    private static final int ERROR_MAX_LENGTH = 255;
+
+    private static final String INSERT_SQL = "insert into upload_chunk (upload_id, chunk_index, first_line, content, " +
+        "options, status, attempts, created_date) values (?, ?, ?, ?, ?, ?, 0, ?)";
+
+    private static final String SELECT_PENDING_SQL = "select upload_id, chunk_index from upload_chunk " +
+        "where status = ? order by created_date, chunk_index limit ?";
+
+    private static final String SELECT_PENDING_SKIP_LOCKED_SQL = "select upload_id, chunk_index from upload_chunk " +
+        "where status = ? order by created_date, chunk_index limit 1 for update skip locked";
+
+    private static final String CLAIM_SQL = "update upload_chunk set status = ?, claimed_by = ?, claimed_date = ?, " +
+        "attempts = attempts + 1 where upload_id = ? and chunk_index = ? and status = ?";
+
+    private static final String SELECT_CLAIMED_SQL = "select content, options, attempts from upload_chunk " +
+        "where upload_id = ? and chunk_index = ?";
+
+    private static final String COMPLETE_SQL = "update upload_chunk set status = ?, content = null, summary = ? " +
+        "where upload_id = ? and chunk_index = ? and status = ? and claimed_by = ?";
+
+    private static final String RELEASE_SQL = "update upload_chunk set status = ?, claimed_by = null, error = ? " +
+        "where upload_id = ? and chunk_index = ? and status = ? and claimed_by = ?";
+
+    private static final String UNCLAIM_SQL = "update upload_chunk set status = ?, claimed_by = null, " +
+        "attempts = attempts - 1 where upload_id = ? and chunk_index = ? and status = ? and claimed_by = ?";
+
+    private static final String RELEASE_EXPIRED_SQL = "update upload_chunk set status = ?, claimed_by = null " +
+        "where status = ? and claimed_date < ? and attempts < ?";
+
+    private static final String FAIL_EXPIRED_SQL = "update upload_chunk set status = ?, error = ? " +
+        "where status = ? and claimed_date < ? and attempts >= ?";
+
+    private static final String SELECT_STATUS_SQL = "select chunk_index, status, error from upload_chunk " +
+        "where upload_id = ? order by chunk_index";
+
+    private static final String SELECT_SUMMARY_SQL = "select summary from upload_chunk " +
+        "where upload_id = ? and chunk_index = ?";
+
+    private static final String DELETE_SQL = "delete from upload_chunk where upload_id = ?";
+
+    private static final String DELETE_OLD_SQL = "delete from upload_chunk where created_date < ?";
+
+    private final Logger log = LoggerFactory.getLogger(UploadChunkService.class);
+
+    private final StudentUploadService studentUploadService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final Executor chunkTaskExecutor;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final Semaphore workers;
+
+    private final String nodeId;
+
+    private volatile ClaimStrategy claimStrategy;
+
+    public UploadChunkService(StudentUploadService studentUploadService, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+            @Qualifier("chunkTaskExecutor") Executor chunkTaskExecutor, ApplicationProperties applicationProperties) {
+        this.studentUploadService = studentUploadService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkTaskExecutor = chunkTaskExecutor;
+        this.applicationProperties = applicationProperties;
+        ApplicationProperties.Upload.Distributed distributed = applicationProperties.getUpload().getDistributed();
+        this.workers = new Semaphore(Math.max(distributed.getWorkers(), 0));
+        this.nodeId = distributed.getNodeId() != null ? distributed.getNodeId()
+            : ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    /**
+     * Whether an upload can be split into chunks ingested independently.
+     *
+     * @param options the options of the upload
+     * @return true if the upload is an uncompressed CSV inserted without deduplication, checkpoint or dry run; its
+     * content must still be checked for quoted line feeds, see {@link #ingest(Path, UploadOptions, UploadProgress)}
+     */
+    public boolean isDistributable(UploadOptions options) {
+        return options.getFormat() == UploadOptions.Format.CSV
+            && options.getCompression() == UploadOptions.Compression.NONE
+            && options.getMode() == UploadOptions.Mode.INSERT
+            && !options.isDedup() && !options.isDryRun() && options.getUploadId() == null;
+    }
+
+    /**
+     * Queue the chunks of a spooled CSV file, then wait for them to be ingested by any node.
+     * <p>
+     * The progress is updated as the chunks are completed. If it is cancelled, the chunks which are not claimed yet
+     * are removed; the chunks already ingested are kept.
+     * <p>
+     * A CSV with a line feed inside a quoted field is ingested by this node instead, as its chunks would split the
+     * field and misnumber the following lines.
+     *
+     * @param csvFile the CSV file, with a header line
+     * @param options the options of the upload, which must be distributable
+     * @param progress the progress to update
+     * @return the summary of the upload, with the line numbers of its rejected rows in the whole file
+     * @throws IOException if the file cannot be read
+     */
+    public UploadSummaryDTO ingest(Path csvFile, UploadOptions options, UploadProgress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            if (StudentUploadService.hasQuotedLineFeed(channel)) {
+                log.info("{} has line feeds in quoted fields, ingesting it on this node", csvFile);
+                return studentUploadService.upload(csvFile, options, progress);
+            }
+        }
+        String uploadId = UUID.randomUUID().toString();
+        String json = write(options.copy().parallel(false).mapped(false).distributed(false));
+        long chunkSize = applicationProperties.getUpload().getDistributed().getChunkSizeKb() * 1024L;
+        progress.start();
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            List<StudentUploadService.FileSegment> segments = StudentUploadService.splitBySize(channel, chunkSize);
+            log.debug("Queueing {} in {} chunks of upload {}", csvFile, segments.size(), uploadId);
+            long[] firstLines = new long[segments.size()];
+            long lineCount = 0;
+            for (StudentUploadService.FileSegment segment : segments) {
+                progress.checkNotCancelled();
+                byte[] content = read(channel, segment);
+                firstLines[segment.index] = lineCount;
+                lineCount += countLines(content);
+                Timestamp now = Timestamp.from(Instant.now());
+                transactionTemplate.execute(status -> jdbcTemplate.update(INSERT_SQL, uploadId, segment.index,
+                    firstLines[segment.index], content, json, Status.PENDING.name(), now));
+            }
+            return await(uploadId, segments, firstLines, progress);
+        } finally {
+            // the chunks still claimed by a node complete on their own, without being recorded
+            transactionTemplate.execute(status -> jdbcTemplate.update(DELETE_SQL, uploadId));
+            progress.finish();
+        }
+    }
+
+    private UploadSummaryDTO await(String uploadId, List<StudentUploadService.FileSegment> segments,
+            long[] firstLines, UploadProgress progress) {
+        ApplicationProperties.Upload.Distributed distributed = applicationProperties.getUpload().getDistributed();
+        TreeMap<Integer, UploadSummaryDTO> summaries = new TreeMap<>();
+        List<String> failures = new ArrayList<>();
+        boolean waiting = true;
+        while (waiting) {
+            progress.checkNotCancelled();
+            waiting = false;
+            failures.clear();
+            for (ChunkStatus chunk : jdbcTemplate.query(SELECT_STATUS_SQL, (rs, rowNum) ->
+                    new ChunkStatus(rs.getInt("chunk_index"), Status.valueOf(rs.getString("status")),
+                        rs.getString("error")), uploadId)) {
+                if (chunk.status == Status.DONE && !summaries.containsKey(chunk.index)) {
+                    UploadSummaryDTO summary = readSummary(jdbcTemplate.queryForObject(SELECT_SUMMARY_SQL,
+                        String.class, uploadId, chunk.index));
+                    summaries.put(chunk.index, summary);
+                    StudentUploadService.FileSegment segment = segments.get(chunk.index);
+                    progress.rowsParsed(summary.getParsedRows());
+                    progress.rowsRejected(summary.getRejectedRows());
+                    progress.bytesRead(segment.end - segment.start);
+                    progress.rowsInserted(summary.getInsertedRows());
+                } else if (chunk.status == Status.FAILED) {
+                    failures.add("chunk " + chunk.index + ": " + chunk.error);
+                } else if (chunk.status != Status.DONE) {
+                    waiting = true;
+                }
+            }
+            if (waiting) {
+                sleep(distributed.getPollIntervalMillis());
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException(failures.size() + " chunks of upload " + uploadId + " failed, " +
+                failures.get(0));
+        }
+        return summarize(uploadId, summaries, firstLines, progress);
+    }
+
+    private UploadSummaryDTO summarize(String uploadId, TreeMap<Integer, UploadSummaryDTO> summaries,
+            long[] firstLines, UploadProgress progress) {
+        int maxReportedErrors = applicationProperties.getUpload().getMaxReportedErrors();
+        UploadSummaryDTO summary = new UploadSummaryDTO();
+        summaries.forEach((index, chunkSummary) -> {
+            for (RejectedRowDTO rejectedRow : chunkSummary.getErrors()) {
+                if (summary.getErrors().size() < maxReportedErrors) {
+                    rejectedRow.setLineNumber(firstLines[index] + rejectedRow.getLineNumber());
+                    summary.getErrors().add(rejectedRow);
+                }
+            }
+        });
+        summary.setParsedRows(progress.getParsedRows());
+        summary.setInsertedRows(progress.getInsertedRows());
+        summary.setUpdatedRows(progress.getUpdatedRows());
+        summary.setRejectedRows(progress.getRejectedRows());
+        summary.setErrorsTruncated(summary.getRejectedRows() > summary.getErrors().size());
+        log.info("Distributed upload {} processed: {}", uploadId, summary);
+        return summary;
+    }
+
+    /**
+     * Claim the pending chunks while this node has free workers, and ingest them on the "chunkTaskExecutor".
+     * <p>
+     * The claims of the nodes which stopped are released first. A chunk whose task is rejected by the executor,
+     * whose threads may not be back from their previous chunk yet, is given back to the queue without counting as
+     * an attempt.
+     */
+    @Scheduled(fixedDelayString = "${application.upload.distributed.poll-interval-millis:1000}")
+    public void pollChunks() {
+        releaseExpiredClaims();
+        while (workers.tryAcquire()) {
+            Optional<ClaimedChunk> claimed;
+            try {
+                claimed = claim(nodeId);
+            } catch (RuntimeException e) {
+                workers.release();
+                throw e;
+            }
+            if (!claimed.isPresent()) {
+                workers.release();
+                return;
+            }
+            try {
+                chunkTaskExecutor.execute(() -> {
+                    try {
+                        ingest(claimed.get(), nodeId);
+                    } finally {
+                        workers.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                workers.release();
+                unclaim(claimed.get().key);
+                log.debug("Chunk {} of upload {} was rejected by the executor, it stays pending",
+                    claimed.get().key.index, claimed.get().key.uploadId);
+                return;
+            }
+        }
+    }
+
+    private void unclaim(ChunkKey key) {
+        transactionTemplate.execute(status -> jdbcTemplate.update(UNCLAIM_SQL, Status.PENDING.name(),
+            key.uploadId, key.index, Status.CLAIMED.name(), nodeId));
+    }
+
+    /**
+     * Claim and ingest the pending chunks one after the other on the calling thread, as the given node.
+     *
+     * @param node the id of the node claiming the chunks
+     * @return the number of chunks claimed
+     */
+    int drain(String node) {
+        int count = 0;
+        for (Optional<ClaimedChunk> claimed = claim(node); claimed.isPresent(); claimed = claim(node)) {
+            ingest(claimed.get(), node);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Remove the chunks of the uploads whose node stopped before they completed.
+     * <p>
+     * This is scheduled to get fired every hour.
+     */
+    @Scheduled(cron = "0 15 * * * ?")
+    public void removeOldChunks() {
+        long retentionHours = applicationProperties.getUpload().getDistributed().getRetentionHours();
+        Instant limit = Instant.now().minus(retentionHours, ChronoUnit.HOURS);
+        Integer removed = transactionTemplate.execute(status ->
+            jdbcTemplate.update(DELETE_OLD_SQL, Timestamp.from(limit)));
+        log.debug("Removed {} upload chunks", removed);
+    }
+
+    private void releaseExpiredClaims() {
+        ApplicationProperties.Upload.Distributed distributed = applicationProperties.getUpload().getDistributed();
+        Timestamp limit = Timestamp.from(Instant.now().minus(distributed.getClaimTimeoutMinutes(), ChronoUnit.MINUTES));
+        transactionTemplate.execute(status -> {
+            int failed = jdbcTemplate.update(FAIL_EXPIRED_SQL, Status.FAILED.name(), "claim timed out",
+                Status.CLAIMED.name(), limit, distributed.getMaxAttempts());
+            int released = jdbcTemplate.update(RELEASE_EXPIRED_SQL, Status.PENDING.name(), Status.CLAIMED.name(),
+                limit, distributed.getMaxAttempts());
+            if (failed + released > 0) {
+                log.info("Released {} and failed {} expired chunk claims", released, failed);
+            }
+            return null;
+        });
+    }
+
+    private Optional<ClaimedChunk> claim(String node) {
+        return getClaimStrategy() == ClaimStrategy.SKIP_LOCKED ? claimSkipLocked(node) : claimConditionally(node);
+    }
+
+    private Optional<ClaimedChunk> claimSkipLocked(String node) {
+        return transactionTemplate.execute(status -> {
+            List<ChunkKey> pending = jdbcTemplate.query(SELECT_PENDING_SKIP_LOCKED_SQL, (rs, rowNum) ->
+                new ChunkKey(rs.getString("upload_id"), rs.getInt("chunk_index")), Status.PENDING.name());
+            if (pending.isEmpty()) {
+                return Optional.empty();
+            }
+            // the chunk is locked until the end of the transaction, so the update cannot miss
+            ChunkKey key = pending.get(0);
+            jdbcTemplate.update(CLAIM_SQL, Status.CLAIMED.name(), node, Timestamp.from(Instant.now()),
+                key.uploadId, key.index, Status.PENDING.name());
+            return Optional.of(load(key));
+        });
+    }
+
+    private Optional<ClaimedChunk> claimConditionally(String node) {
+        List<ChunkKey> candidates = jdbcTemplate.query(SELECT_PENDING_SQL, (rs, rowNum) ->
+            new ChunkKey(rs.getString("upload_id"), rs.getInt("chunk_index")), Status.PENDING.name(), CANDIDATE_COUNT);
+        for (ChunkKey key : candidates) {
+            try {
+                Optional<ClaimedChunk> claimed = transactionTemplate.execute(status -> {
+                    int updated = jdbcTemplate.update(CLAIM_SQL, Status.CLAIMED.name(), node,
+                        Timestamp.from(Instant.now()), key.uploadId, key.index, Status.PENDING.name());
+                    return updated == 1 ? Optional.of(load(key)) : Optional.<ClaimedChunk>empty();
+                });
+                if (claimed.isPresent()) {
+                    return claimed;
+                }
+            } catch (DataAccessException e) {
+                // H2 reports a concurrent update of the same row as an error rather than waiting for it
+                log.debug("Chunk {} of upload {} was claimed concurrently: {}", key.index, key.uploadId,
+                    e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private ClaimedChunk load(ChunkKey key) {
+        return jdbcTemplate.queryForObject(SELECT_CLAIMED_SQL, (rs, rowNum) -> new ClaimedChunk(key,
+            rs.getBytes("content"), rs.getString("options"), rs.getInt("attempts")), key.uploadId, key.index);
+    }
+
+    private void ingest(ClaimedChunk chunk, String node) {
+        ChunkKey key = chunk.key;
+        // the checkpoint of the chunk resumes it after its committed rows if it is claimed again
+        UploadOptions options = readOptions(chunk.options).uploadId(key.uploadId + CHUNK_ID_SEPARATOR + key.index);
+        try {
+            UploadSummaryDTO summary = studentUploadService.uploadChunk(new ByteArrayInputStream(chunk.content),
+                key.index == 0, options, new UploadProgress());
+            String json = write(summary);
+            transactionTemplate.execute(status -> jdbcTemplate.update(COMPLETE_SQL, Status.DONE.name(), json,
+                key.uploadId, key.index, Status.CLAIMED.name(), node));
+        } catch (IOException | RuntimeException e) {
+            int maxAttempts = applicationProperties.getUpload().getDistributed().getMaxAttempts();
+            Status status = chunk.attempts < maxAttempts ? Status.PENDING : Status.FAILED;
+            log.warn("Chunk {} of upload {} failed on attempt {}, now {}: {}", key.index, key.uploadId,
+                chunk.attempts, status, e.getMessage());
+            String error = String.valueOf(e.getMessage());
+            String truncated = error.length() > ERROR_MAX_LENGTH ? error.substring(0, ERROR_MAX_LENGTH) : error;
+            transactionTemplate.execute(tx -> jdbcTemplate.update(RELEASE_SQL, status.name(), truncated,
+                key.uploadId, key.index, Status.CLAIMED.name(), node));
+        }
+    }
+
+    ClaimStrategy getClaimStrategy() {
+        ClaimStrategy strategy = claimStrategy;
+        if (strategy == null) {
+            strategy = jdbcTemplate.execute((ConnectionCallback<ClaimStrategy>) connection -> {
+                DatabaseMetaData metaData = connection.getMetaData();
+                return claimStrategy(metaData.getDatabaseProductName(), metaData.getDatabaseMajorVersion(),
+                    metaData.getDatabaseMinorVersion());
+            });
+            log.debug("Claiming upload chunks with {}", strategy);
+            claimStrategy = strategy;
+        }
+        return strategy;
+    }
+
+    /**
+     * SKIP LOCKED is supported since MySQL 8.0 and PostgreSQL 9.5.
+     */
+    static ClaimStrategy claimStrategy(String productName, int majorVersion, int minorVersion) {
+        String product = productName.toLowerCase(Locale.ROOT);
+        if (product.contains("mysql") && majorVersion >= 8) {
+            return ClaimStrategy.SKIP_LOCKED;
+        }
+        if (product.contains("postgresql") && (majorVersion > 9 || (majorVersion == 9 && minorVersion >= 5))) {
+            return ClaimStrategy.SKIP_LOCKED;
+        }
+        return ClaimStrategy.CONDITIONAL_UPDATE;
+    }
+
+    private static byte[] read(FileChannel channel, StudentUploadService.FileSegment segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (segment.end - segment.start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, segment.start + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at " + (segment.start + buffer.position()));
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * The lines of a chunk, which ends right after a line feed unless it is the last one.
+     */
+    private static long countLines(byte[] content) {
+        long count = 0;
+        for (byte b : content) {
+            if (b == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the chunks of the upload");
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + value, e);
+        }
+    }
+
+    private UploadOptions readOptions(String json) {
+        try {
+            return objectMapper.readValue(json, UploadOptions.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private UploadSummaryDTO readSummary(String json) {
+        try {
+            return objectMapper.readValue(json, UploadSummaryDTO.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class ChunkKey {
+
+        private final String uploadId;
+
+        private final int index;
+
+        private ChunkKey(String uploadId, int index) {
+            this.uploadId = uploadId;
+            this.index = index;
+        }
+    }
+
+    private static final class ClaimedChunk {
+
+        private final ChunkKey key;
+
+        private final byte[] content;
+
+        private final String options;
+
+        private final int attempts;
+
+        private ClaimedChunk(ChunkKey key, byte[] content, String options, int attempts) {
+            this.key = key;
+            this.content = content;
+            this.options = options;
+            this.attempts = attempts;
+        }
+    }
+
+    private static final class ChunkStatus {
+
+        private final int index;
+
+        private final Status status;
+
+        private final String error;
+
+        private ChunkStatus(int index, Status status, String error) {
+            this.index = index;
+            this.status = status;
+            this.error = error;
+        }
+    }
+}
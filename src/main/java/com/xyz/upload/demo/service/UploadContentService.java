@@ -0,0 +1,239 @@
+package com.xyz.upload.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.service.dto.UploadSummaryDTO;
+
+/**
+ * Service for ingesting spooled uploads at most once per content.
+ * <p>
+ * The SHA-256 of an upload is computed while it is spooled to disk, and the summary of every completed
+ * ingestion is indexed by that hash and the options changing the outcome of the ingestion: the same content
+ * uploaded with another format, compression, mode, writer or deduplication is ingested again. An upload whose
+ * content is already indexed with the same options is answered with the indexed summary, without being parsed
+ * again, unless the upload is forced.
+ * <p>
+ * Error reports are evicted long before the index, so an indexed summary only keeps its error report id while
+ * the report exists.
+ */
+@Service
+public class UploadContentService {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final String SELECT_SQL = "select summary, created_date from upload_content where content_hash = ?";
+
+    private static final String INSERT_SQL = "insert into upload_content (content_hash, summary, created_date) values (?, ?, ?)";
+
+    private static final String UPDATE_SQL = "update upload_content set summary = ?, created_date = ? where content_hash = ?";
+
+    private static final String DELETE_OLD_SQL = "delete from upload_content where created_date < ?";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Logger log = LoggerFactory.getLogger(UploadContentService.class);
+
+    private final StudentUploadService studentUploadService;
+
+    private final UploadChunkService uploadChunkService;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ErrorReportService errorReportService;
+
+    private final ObjectMapper objectMapper;
+
+    private final ApplicationProperties applicationProperties;
+
+    public UploadContentService(StudentUploadService studentUploadService, UploadChunkService uploadChunkService,
+            ErrorReportService errorReportService, JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+            ApplicationProperties applicationProperties) {
+        this.studentUploadService = studentUploadService;
+        this.uploadChunkService = uploadChunkService;
+        this.errorReportService = errorReportService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.applicationProperties = applicationProperties;
+    }
+
+    /**
+     * Copy an upload to a file, computing the hash of its content on the way.
+     *
+     * @param csv the content to spool
+     * @param target the file to write
+     * @return the hex SHA-256 of the content
+     * @throws IOException if the content cannot be read or written
+     */
+    public String spool(InputStream csv, Path target) throws IOException {
+        MessageDigest digest = newDigest();
+        try (DigestInputStream in = new DigestInputStream(csv, digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Ingest a spooled upload, unless the same content was already ingested.
+     * <p>
+     * A dry run is always run, in parallel unless a quoted field spans lines, and not indexed. A distributed upload
+     * which cannot be split into chunks, see {@link UploadChunkService#isDistributable(UploadOptions)}, is ingested
+     * by this node.
+     *
+     * @param csvFile the spooled CSV, with a header line, or the spooled zip bundle of CSVs
+     * @param contentHash the hash returned when the CSV was spooled
+     * @param options the options of the upload
+     * @param progress the progress to update
+     * @return the summary of the ingestion, or the summary of the first ingestion of the content
+     * @throws IOException if the file cannot be read
+     */
+    public UploadSummaryDTO ingest(Path csvFile, String contentHash, UploadOptions options, UploadProgress progress)
+            throws IOException {
+        progress.expectBytes(Files.size(csvFile));
+        if (options.isDryRun()) {
+            // a dry run never uses the database, not even for the index
+            UploadSummaryDTO summary = studentUploadService.uploadParallel(csvFile, options, progress);
+            summary.setContentHash(contentHash);
+            return summary;
+        }
+        if (!options.isForce()) {
+            Optional<UploadSummaryDTO> indexed = findOne(contentHash, options);
+            if (indexed.isPresent()) {
+                log.info("Upload content {} was already ingested, skipping it", contentHash);
+                indexed.get().setDuplicate(true);
+                return indexed.get();
+            }
+        }
+        UploadSummaryDTO summary;
+        if (options.isDistributed() && uploadChunkService.isDistributable(options)) {
+            summary = uploadChunkService.ingest(csvFile, options, progress);
+        } else if (options.isParallel() || options.getCompression() == UploadOptions.Compression.ZIP) {
+            summary = studentUploadService.uploadParallel(csvFile, options, progress);
+        } else {
+            summary = studentUploadService.upload(csvFile, options, progress);
+        }
+        summary.setContentHash(contentHash);
+        save(indexKey(contentHash, options), summary);
+        return summary;
+    }
+
+    /**
+     * Get the summary of the first ingestion of a content with the same options.
+     *
+     * @param contentHash the hex SHA-256 of the content
+     * @param options the options of the upload
+     * @return the summary, without its error report id once the report may have been evicted, or empty if the
+     * content was not ingested with these options
+     */
+    public Optional<UploadSummaryDTO> findOne(String contentHash, UploadOptions options) {
+        Instant reportLimit = Instant.now()
+            .minus(applicationProperties.getUpload().getErrorReports().getRetentionHours(), ChronoUnit.HOURS);
+        List<UploadSummaryDTO> summaries = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> {
+            UploadSummaryDTO summary = readSummary(rs.getString("summary"));
+            String reportId = summary.getErrorReportId();
+            if (reportId != null && (rs.getTimestamp("created_date").toInstant().isBefore(reportLimit) ||
+                    !errorReportService.exists(reportId))) {
+                summary.setErrorReportId(null);
+            }
+            return summary;
+        }, indexKey(contentHash, options));
+        return summaries.stream().findFirst();
+    }
+
+    /**
+     * Remove the contents which were ingested more than contentRetentionDays ago.
+     * <p>
+     * This is scheduled to get fired everyday, at 02:30 (am).
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void removeOldContents() {
+        Instant limit = Instant.now().minus(applicationProperties.getUpload().getContentRetentionDays(), ChronoUnit.DAYS);
+        int removed = jdbcTemplate.update(DELETE_OLD_SQL, Timestamp.from(limit));
+        log.debug("Removed {} upload contents", removed);
+    }
+
+
+    private void save(String indexKey, UploadSummaryDTO summary) {
+        String json = writeSummary(summary);
+        Timestamp now = Timestamp.from(Instant.now());
+        // a forced upload replaces the summary of the previous ingestion
+        if (jdbcTemplate.update(UPDATE_SQL, json, now, indexKey) == 0) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, indexKey, json, now);
+            } catch (DuplicateKeyException e) {
+                log.debug("Upload content {} was indexed concurrently", summary.getContentHash());
+            }
+        }
+    }
+
+    /**
+     * Get the key of a content in the index: the hex SHA-256 of the content hash and of the options changing the
+     * outcome of its ingestion, which fits the content_hash column.
+     */
+    static String indexKey(String contentHash, UploadOptions options) {
+        String key = contentHash +
+            "," + options.getFormat() +
+            "," + options.getCompression() +
+            "," + options.getMode() +
+            "," + options.getWriter() +
+            "," + options.isDedup();
+        return toHex(newDigest().digest(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String writeSummary(UploadSummaryDTO summary) {
+        try {
+            return objectMapper.writeValueAsString(summary);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + summary, e);
+        }
+    }
+
+    private UploadSummaryDTO readSummary(String json) {
+        try {
+            return objectMapper.readValue(json, UploadSummaryDTO.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,139 @@
+package com.xyz.upload.demo.service;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.service.dto.UploadEventDTO;
+import com.xyz.upload.demo.service.dto.UploadJobDTO;
+
+/**
+ * Service for streaming the progress of upload jobs as Server-Sent Events.
+ * <p>
+ * Every subscriber gets a PROGRESS event at the configured interval, read from the counters of the job, so the
+ * ingest pipeline never waits for a subscriber. Once the job is finished, a last SUMMARY or ERROR event is sent
+ * and the stream is completed.
+ * <p>
+ * The events are sent by the scheduling pool, whose threads and task times are exported under executor.scheduling
+ * and which is sized by application.executors.scheduling.pool-size.
+ */
+@Service
+public class UploadJobEventService {
+
+    private final Logger log = LoggerFactory.getLogger(UploadJobEventService.class);
+
+    private final UploadJobService uploadJobService;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final TaskScheduler scheduler;
+
+    public UploadJobEventService(UploadJobService uploadJobService, ApplicationProperties applicationProperties,
+            @Qualifier("scheduledTaskExecutor") TaskScheduler scheduler) {
+        this.uploadJobService = uploadJobService;
+        this.applicationProperties = applicationProperties;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Subscribe to the events of a job.
+     *
+     * @param id the id of the job
+     * @return the stream of events, or empty if the job is unknown
+     */
+    public Optional<SseEmitter> subscribe(String id) {
+        if (!uploadJobService.findOne(id).isPresent()) {
+            return Optional.empty();
+        }
+        log.debug("Request to stream the events of upload job {}", id);
+        SseEmitter emitter = new SseEmitter();
+        Subscription subscription = new Subscription(id, emitter);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        long interval = applicationProperties.getUpload().getJobs().getEventsIntervalMillis();
+        subscription.future = scheduler.scheduleAtFixedRate(subscription, interval);
+        return Optional.of(emitter);
+    }
+
+    private static UploadEventDTO progressEvent(UploadJobDTO job) {
+        UploadEventDTO event = UploadEventDTO.progress(job.getParsedRows(), job.getInsertedRows(), job.getRejectedRows());
+        event.setRowsPerSecond(job.getRowsPerSecond());
+        event.setEtaSeconds(job.getEtaSeconds());
+        return event;
+    }
+
+    private static UploadEventDTO finalEvent(UploadJobDTO job) {
+        switch (job.getStatus()) {
+            case COMPLETED:
+                return UploadEventDTO.summary(job.getSummary());
+            case FAILED:
+                return UploadEventDTO.error(job.getErrorMessage());
+            case CANCELLED:
+                return UploadEventDTO.error("Upload job cancelled");
+            default:
+                return null;
+        }
+    }
+
+    private final class Subscription implements Runnable {
+
+        private final String id;
+
+        private final SseEmitter emitter;
+
+        private volatile ScheduledFuture<?> future;
+
+        private Subscription(String id, SseEmitter emitter) {
+            this.id = id;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Optional<UploadJobDTO> job = uploadJobService.findOne(id);
+                if (!job.isPresent()) {
+                    // the job finished before the retention, and was forgotten
+                    send(UploadEventDTO.error("Unknown upload job " + id));
+                    complete();
+                    return;
+                }
+                send(progressEvent(job.get()));
+                UploadEventDTO finalEvent = finalEvent(job.get());
+                if (finalEvent != null) {
+                    send(finalEvent);
+                    complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away, or the stream completed before the future of this task was set
+                log.debug("Stopping the events of upload job {}: {}", id, e.getMessage());
+                cancel();
+            }
+        }
+
+        private void send(UploadEventDTO event) throws IOException {
+            emitter.send(SseEmitter.event().name(event.getType().name()).data(event, MediaType.APPLICATION_JSON));
+        }
+
+        private void complete() {
+            cancel();
+            emitter.complete();
+        }
+
+        private void cancel() {
+            ScheduledFuture<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+}
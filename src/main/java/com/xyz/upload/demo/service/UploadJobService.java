@@ -0,0 +1,224 @@
+package com.xyz.upload.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.service.dto.UploadJobDTO;
+import com.xyz.upload.demo.service.dto.UploadSummaryDTO;
+import com.xyz.upload.demo.web.rest.errors.TooManyUploadsException;
+
+/**
+ * Service for running Student uploads asynchronously.
+ * <p>
+ * Uploads are spooled to a temporary file, then ingested on the dedicated "uploadTaskExecutor",
+ * so the request thread is released immediately. Jobs are kept in memory until they have been
+ * finished for longer than the configured retention.
+ */
+@Service
+public class UploadJobService {
+
+    private final Logger log = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    private final UploadContentService uploadContentService;
+
+    private final AsyncTaskExecutor uploadTaskExecutor;
+
+    private final UploadAdmissionService uploadAdmissionService;
+
+    private final ApplicationProperties applicationProperties;
+
+    public UploadJobService(UploadContentService uploadContentService,
+            @Qualifier("uploadTaskExecutor") AsyncTaskExecutor uploadTaskExecutor,
+            UploadAdmissionService uploadAdmissionService, ApplicationProperties applicationProperties) {
+        this.uploadContentService = uploadContentService;
+        this.uploadTaskExecutor = uploadTaskExecutor;
+        this.uploadAdmissionService = uploadAdmissionService;
+        this.applicationProperties = applicationProperties;
+    }
+
+    /**
+     * Spool a CSV and submit it for asynchronous ingestion.
+     *
+     * @param csv the CSV content
+     * @param fileName the original name of the file
+     * @param options the options of the upload
+     * @return the queued job
+     * @throws IOException if the content cannot be spooled
+     * @throws TooManyUploadsException if the upload executor queue is full
+     */
+    public UploadJobDTO submit(InputStream csv, String fileName, UploadOptions options) throws IOException {
+        Path spooled = Files.createTempFile("upload-", ".csv");
+        String contentHash;
+        try {
+            contentHash = uploadContentService.spool(csv, spooled);
+        } catch (IOException e) {
+            deleteQuietly(spooled);
+            throw e;
+        }
+        String id = UUID.randomUUID().toString();
+        // the rejected rows of a job can be read with its id while it is running
+        UploadJob job = new UploadJob(id, fileName, spooled, contentHash, options.reportId(id));
+        jobs.put(job.id, job);
+        try {
+            job.future = uploadTaskExecutor.submit(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            deleteQuietly(spooled);
+            throw new TooManyUploadsException(uploadAdmissionService.getRetryAfterSeconds());
+        }
+        log.debug("Submitted upload job {} for {}", job.id, fileName);
+        return job.toDto();
+    }
+
+    /**
+     * Get the status of a job.
+     *
+     * @param id the id of the job
+     * @return the job, if it is known
+     */
+    public Optional<UploadJobDTO> findOne(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(UploadJob::toDto);
+    }
+
+    /**
+     * Cancel a job. A running job stops at the next row; chunks it already committed are kept.
+     *
+     * @param id the id of the job
+     * @return the job, if it is known
+     */
+    public Optional<UploadJobDTO> cancel(String id) {
+        UploadJob job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        log.debug("Request to cancel upload job {}", id);
+        job.progress.cancel();
+        Future<?> future = job.future;
+        if (future != null && future.cancel(false)) {
+            // the job was still queued, so it will never run
+            finish(job, UploadJobDTO.Status.CANCELLED);
+        }
+        return Optional.of(job.toDto());
+    }
+
+    /**
+     * Forget the jobs which finished longer ago than the retention.
+     * <p>
+     * This is scheduled to get fired every minute.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void removeFinishedJobs() {
+        Instant limit = Instant.now().minus(applicationProperties.getUpload().getJobs().getRetentionMinutes(), ChronoUnit.MINUTES);
+        jobs.values().removeIf(job -> job.finishedDate != null && job.finishedDate.isBefore(limit));
+    }
+
+    private void run(UploadJob job) {
+        if (job.progress.isCancelled()) {
+            finish(job, UploadJobDTO.Status.CANCELLED);
+            return;
+        }
+        UploadJobDTO.Status finalStatus;
+        // jobs share the admission permits with synchronous uploads, but wait for them instead of being rejected
+        try (UploadAdmissionService.Permit permit = uploadAdmissionService.await()) {
+            job.status = UploadJobDTO.Status.RUNNING;
+            job.summary = uploadContentService.ingest(job.file, job.contentHash, job.options, job.progress);
+            finalStatus = UploadJobDTO.Status.COMPLETED;
+        } catch (CancellationException e) {
+            log.info("Upload job {} cancelled after {} rows", job.id, job.progress.getParsedRows());
+            finalStatus = UploadJobDTO.Status.CANCELLED;
+        } catch (Exception e) {
+            log.error("Upload job {} failed", job.id, e);
+            job.errorMessage = e.getMessage();
+            finalStatus = UploadJobDTO.Status.FAILED;
+        }
+        finish(job, finalStatus);
+    }
+
+    private void finish(UploadJob job, UploadJobDTO.Status finalStatus) {
+        job.status = finalStatus;
+        job.finishedDate = Instant.now();
+        deleteQuietly(job.file);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", file, e);
+        }
+    }
+
+    private static final class UploadJob {
+
+        private final String id;
+
+        private final String fileName;
+
+        private final Path file;
+
+        private final String contentHash;
+
+        private final UploadOptions options;
+
+        private final Instant createdDate = Instant.now();
+
+        private final UploadProgress progress = new UploadProgress();
+
+        private volatile UploadJobDTO.Status status = UploadJobDTO.Status.QUEUED;
+
+        private volatile Instant finishedDate;
+
+        private volatile String errorMessage;
+
+        private volatile UploadSummaryDTO summary;
+
+        private volatile Future<?> future;
+
+        private UploadJob(String id, String fileName, Path file, String contentHash, UploadOptions options) {
+            this.id = id;
+            this.fileName = fileName;
+            this.file = file;
+            this.contentHash = contentHash;
+            this.options = options;
+        }
+
+        private UploadJobDTO toDto() {
+            UploadJobDTO dto = new UploadJobDTO();
+            dto.setId(id);
+            dto.setStatus(status);
+            dto.setFileName(fileName);
+            dto.setCreatedDate(createdDate);
+            dto.setFinishedDate(finishedDate);
+            dto.setParsedRows(progress.getParsedRows());
+            dto.setInsertedRows(progress.getInsertedRows());
+            dto.setUpdatedRows(progress.getUpdatedRows());
+            dto.setRejectedRows(progress.getRejectedRows());
+            dto.setRowsPerSecond(progress.getRowsPerSecond());
+            dto.setEtaSeconds(progress.getEtaSeconds());
+            dto.setErrorMessage(errorMessage);
+            dto.setSummary(summary);
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.xyz.upload.demo.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+
+/**
+ * Metrics of the stages of the upload pipeline: parse, map, validate and persist.
+ * <p>
+ * They are registered in the application {@link MetricRegistry}, so they are reported through JMX and the
+ * Prometheus endpoint with the other metrics.
+ * <p>
+ * A row takes well under a microsecond to parse, map or validate, too little to be timed one by one, so the time
+ * of each row is added up by a {@link Recorder} and, once per chunk, the mean time per row of the chunk is added to
+ * the "stage.nanos-per-row" histogram of each of these stages. Their rates are in {@code rows.parsed}. Mapping is
+ * reading the fields of a record, which the readers decode, trim and convert on demand, into a StudentDTO.
+ * <p>
+ * Persisting is timed per chunk by the persist timer, whose rate counts chunks, along with the chunk sizes.
+ */
+@Component
+public class UploadMetrics {
+
+    public static final String PREFIX = "upload.pipeline.";
+
+    private final Histogram parseNanosPerRow;
+
+    private final Histogram mapNanosPerRow;
+
+    private final Histogram validateNanosPerRow;
+
+    private final Timer persistTimer;
+
+    private final Histogram chunkSize;
+
+    private final Meter parsedRows;
+
+    private final Meter rejectedRows;
+
+    private final Meter writtenRows;
+
+    private final Meter bytesRead;
+
+    public UploadMetrics(MetricRegistry metricRegistry) {
+        this.parseNanosPerRow = histogram(metricRegistry, "parse.nanos-per-row");
+        this.mapNanosPerRow = histogram(metricRegistry, "map.nanos-per-row");
+        this.validateNanosPerRow = histogram(metricRegistry, "validate.nanos-per-row");
+        this.persistTimer = metricRegistry.timer(PREFIX + "persist",
+            () -> new Timer(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES)));
+        this.chunkSize = histogram(metricRegistry, "chunk.size");
+        this.parsedRows = metricRegistry.meter(PREFIX + "rows.parsed");
+        this.rejectedRows = metricRegistry.meter(PREFIX + "rows.rejected");
+        this.writtenRows = metricRegistry.meter(PREFIX + "rows.written");
+        this.bytesRead = metricRegistry.meter(PREFIX + "bytes");
+    }
+
+    private static Histogram histogram(MetricRegistry metricRegistry, String name) {
+        // updated once per chunk, so the window keeps few samples
+        return metricRegistry.histogram(PREFIX + name,
+            () -> new Histogram(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES)));
+    }
+
+    /**
+     * Create the recorder of the rows read by a reader.
+     *
+     * @param progress the progress the reader counts its bytes into
+     * @return the recorder, to use from the thread of the reader only
+     */
+    public Recorder recorder(UploadProgress progress) {
+        return new Recorder(progress);
+    }
+
+    public void rowRejected() {
+        rejectedRows.mark();
+    }
+
+    /**
+     * Record a persisted chunk.
+     *
+     * @param rows the number of rows of the chunk
+     * @param nanos the time taken to persist the chunk
+     */
+    public void persisted(int rows, long nanos) {
+        persistTimer.update(nanos, TimeUnit.NANOSECONDS);
+        chunkSize.update(rows);
+        writtenRows.mark(rows);
+    }
+
+    /**
+     * Time of the parse, map and validate stages of the rows read by a reader since the last chunk.
+     */
+    public final class Recorder {
+
+        private final UploadProgress progress;
+
+        private long recordedBytes;
+
+        private long rows;
+
+        private long mappedRows;
+
+        private long parseNanos;
+
+        private long mapNanos;
+
+        private long validateNanos;
+
+        private Recorder(UploadProgress progress) {
+            this.progress = progress;
+            this.recordedBytes = progress.getBytesRead();
+        }
+
+        public void parsed(long nanos) {
+            rows++;
+            parseNanos += nanos;
+        }
+
+        public void mapped(long nanos) {
+            mappedRows++;
+            mapNanos += nanos;
+        }
+
+        public void validated(long nanos) {
+            validateNanos += nanos;
+        }
+
+        /**
+         * Update the metrics with the rows added up since the last chunk, and start the next chunk.
+         * <p>
+         * Rows rejected before being mapped, for a missing column, only count in the parse stage.
+         */
+        public void record() {
+            long bytes = progress.getBytesRead();
+            bytesRead.mark(bytes - recordedBytes);
+            recordedBytes = bytes;
+            if (rows == 0) {
+                return;
+            }
+            parseNanosPerRow.update(parseNanos / rows);
+            if (mappedRows > 0) {
+                mapNanosPerRow.update(mapNanos / mappedRows);
+                validateNanosPerRow.update(validateNanos / mappedRows);
+            }
+            parsedRows.mark(rows);
+            rows = 0;
+            mappedRows = 0;
+            parseNanos = 0;
+            mapNanos = 0;
+            validateNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.xyz.upload.demo.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Options of a Student upload.
+ * <p>
+ * Options left null fall back to the application.upload properties.
+ */
+public class UploadOptions {
+
+    /**
+     * The formats of an upload.
+     */
+    public enum Format {
+        /** A CSV with a "First Name,Last Name,Age" header line. */
+        CSV,
+        /** JSON lines, one Student object per line. */
+        NDJSON
+    }
+
+    /**
+     * The CSV parsers which can read an upload.
+     */
+    public enum Parser {
+        /** The generic commons-csv parser. */
+        COMMONS,
+        /** The allocation-light byte tokenizer specialized for the Student layout. */
+        TOKENIZER
+    }
+
+    /**
+     * The compressions of an upload, decoded while the upload is read.
+     */
+    public enum Compression {
+        /** A plain CSV. */
+        NONE(".csv"),
+        /** A gzip compressed CSV. */
+        GZIP(".csv.gz"),
+        /** A Zstandard compressed CSV. */
+        ZSTD(".csv.zst"),
+        /** A zip bundle of CSVs, each entry being ingested separately. */
+        ZIP(".zip");
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final String fileSuffix;
+
+        Compression(String fileSuffix) {
+            this.fileSuffix = fileSuffix;
+        }
+
+        /**
+         * Get the compression of a file from its name.
+         *
+         * @param fileName the name of the file
+         * @return the compression, or null if the file is not a supported upload
+         */
+        public static Compression fromFileName(String fileName) {
+            if (fileName != null) {
+                String name = fileName.toLowerCase(Locale.ROOT);
+                for (Compression compression : values()) {
+                    if (name.endsWith(compression.fileSuffix)) {
+                        return compression;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Get the compression of a request body from its Content-Encoding.
+         *
+         * @param contentEncoding the Content-Encoding header, or null
+         * @return the compression, or null if the encoding is not supported
+         */
+        public static Compression fromContentEncoding(String contentEncoding) {
+            if (contentEncoding == null || contentEncoding.isEmpty() || "identity".equalsIgnoreCase(contentEncoding)) {
+                return NONE;
+            }
+            if ("gzip".equalsIgnoreCase(contentEncoding)) {
+                return GZIP;
+            }
+            if ("zstd".equalsIgnoreCase(contentEncoding)) {
+                return ZSTD;
+            }
+            return null;
+        }
+
+        /**
+         * Wrap a stream of this compression into a stream of the CSV it contains.
+         *
+         * @param in the compressed content
+         * @return the decompressed content
+         * @throws IOException if the compressed content cannot be read
+         */
+        public InputStream decode(InputStream in) throws IOException {
+            switch (this) {
+                case GZIP:
+                    return new GZIPInputStream(in, BUFFER_SIZE);
+                case ZSTD:
+                    return new BufferedInputStream(new ZstdInputStream(in), BUFFER_SIZE);
+                case ZIP:
+                    throw new IllegalArgumentException("A zip bundle is read entry by entry");
+                default:
+                    return in;
+            }
+        }
+    }
+
+    /**
+     * The ways valid rows are written to the database.
+     */
+    public enum Writer {
+        /** Plain JDBC batches of inserts. */
+        BATCH,
+        /** The native bulk load of the database, through a staging file per chunk. */
+        NATIVE
+    }
+
+    /**
+     * The ways valid rows are matched with the existing students.
+     */
+    public enum Mode {
+        /** Every row is inserted as a new student. */
+        INSERT,
+        /**
+         * Rows are matched on the application.upload.merge-key columns: matching students are updated and the other
+         * rows are inserted. Rows are merged through a staging table, whatever the writer.
+         */
+        MERGE
+    }
+
+    private Format format = Format.CSV;
+
+    private Parser parser;
+
+    private Compression compression = Compression.NONE;
+
+    private Writer writer = Writer.BATCH;
+
+    private Mode mode = Mode.INSERT;
+
+    private boolean parallel;
+
+    private boolean mapped;
+
+    private boolean dedup;
+
+    private boolean dryRun;
+
+    private boolean distributed;
+
+    private String uploadId;
+
+    private boolean force;
+
+    private String reportId;
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public UploadOptions format(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public Parser getParser() {
+        return parser;
+    }
+
+    public UploadOptions parser(Parser parser) {
+        this.parser = parser;
+        return this;
+    }
+
+    public void setParser(Parser parser) {
+        this.parser = parser;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public UploadOptions compression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Writer getWriter() {
+        return writer;
+    }
+
+    public UploadOptions writer(Writer writer) {
+        this.writer = writer;
+        return this;
+    }
+
+    public void setWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public UploadOptions mode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public UploadOptions parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return whether a spooled CSV is read through memory-mapped windows of the file, rather than a stream
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    public UploadOptions mapped(boolean mapped) {
+        this.mapped = mapped;
+        return this;
+    }
+
+    public void setMapped(boolean mapped) {
+        this.mapped = mapped;
+    }
+
+    /**
+     * @return whether the rows repeating a previous row of the file are rejected as duplicates
+     */
+    public boolean isDedup() {
+        return dedup;
+    }
+
+    public UploadOptions dedup(boolean dedup) {
+        this.dedup = dedup;
+        return this;
+    }
+
+    public void setDedup(boolean dedup) {
+        this.dedup = dedup;
+    }
+
+    /**
+     * @return whether the upload is only parsed and validated, without using the database at all
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public UploadOptions dryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+        return this;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * @return whether the chunks of a spooled CSV are queued for the ingestion by any node, see {@link UploadChunkService}
+     */
+    public boolean isDistributed() {
+        return distributed;
+    }
+
+    public UploadOptions distributed(boolean distributed) {
+        this.distributed = distributed;
+        return this;
+    }
+
+    public void setDistributed(boolean distributed) {
+        this.distributed = distributed;
+    }
+
+    /**
+     * @return the client id of a resumable upload, or null if the upload is not checkpointed
+     */
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public UploadOptions uploadId(String uploadId) {
+        this.uploadId = uploadId;
+        return this;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * @return whether the upload is ingested even if the same content was already ingested
+     */
+    public boolean isForce() {
+        return force;
+    }
+
+    public UploadOptions force(boolean force) {
+        this.force = force;
+        return this;
+    }
+
+    public void setForce(boolean force) {
+        this.force = force;
+    }
+
+    /**
+     * @return the id of the error report of the upload, or null to generate one
+     */
+    public String getReportId() {
+        return reportId;
+    }
+
+    public UploadOptions reportId(String reportId) {
+        this.reportId = reportId;
+        return this;
+    }
+
+    public void setReportId(String reportId) {
+        this.reportId = reportId;
+    }
+
+    /**
+     * @return a copy of these options, for a part of the upload which has its own error report
+     */
+    public UploadOptions copy() {
+        return new UploadOptions().format(format).parser(parser).compression(compression).writer(writer).mode(mode)
+            .parallel(parallel).mapped(mapped).dedup(dedup).dryRun(dryRun).distributed(distributed)
+            .uploadId(uploadId).force(force);
+    }
+
+    @Override
+    public String toString() {
+        return "UploadOptions{" +
+            "format=" + format +
+            ", parser=" + parser +
+            ", compression=" + compression +
+            ", writer=" + writer +
+            ", mode=" + mode +
+            ", parallel=" + parallel +
+            ", mapped=" + mapped +
+            ", dedup=" + dedup +
+            ", dryRun=" + dryRun +
+            ", distributed=" + distributed +
+            ", uploadId='" + uploadId + "'" +
+            ", force=" + force +
+            '}';
+    }
+}
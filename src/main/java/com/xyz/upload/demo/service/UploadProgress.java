@@ -0,0 +1,253 @@
+package com.xyz.upload.demo.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+
+/**
+ * Live counters of an upload being ingested.
+ * <p>
+ * The counters are updated by the ingest pipeline and can be read at any time from other threads,
+ * for instance to report the status of an upload job.
+ * <p>
+ * The parts of an upload, such as the entries of a zip bundle, can have their own progress, see {@link #child()}.
+ * <p>
+ * A {@link Listener} can also be notified as chunks are committed and rows are rejected.
+ * <p>
+ * The bytes read from the upload are counted too, so the remaining time can be estimated from the expected size.
+ */
+public class UploadProgress {
+
+    /**
+     * Listener of the progress of an upload.
+     * <p>
+     * It is called from the threads ingesting the upload, which may be several for a zip bundle.
+     */
+    public interface Listener {
+
+        /**
+         * Called once a chunk is committed.
+         *
+         * @param progress the progress of the upload
+         */
+        default void chunkCommitted(UploadProgress progress) {
+        }
+
+        /**
+         * Called when a row is rejected, with its line number relative to the start of the upload.
+         * The rows rejected in the parts of the upload are not reported.
+         *
+         * @param rejectedRow the rejected row
+         */
+        default void rowRejected(RejectedRowDTO rejectedRow) {
+        }
+    }
+
+    private final LongAdder parsedRows = new LongAdder();
+
+    private final LongAdder insertedRows = new LongAdder();
+
+    private final LongAdder updatedRows = new LongAdder();
+
+    private final LongAdder rejectedRows = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private volatile long expectedBytes;
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
+    private volatile boolean cancelled;
+
+    private final UploadProgress parent;
+
+    private volatile Listener listener;
+
+    public UploadProgress() {
+        this(null);
+    }
+
+    private UploadProgress(UploadProgress parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Create the progress of a part of this upload.
+     * <p>
+     * The counters of the part are also added to this progress, and cancelling this progress cancels the part.
+     *
+     * @return the progress of the part
+     */
+    public UploadProgress child() {
+        return new UploadProgress(this);
+    }
+
+    public UploadProgress listener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    /**
+     * Throw a {@link CancellationException} if the upload was cancelled, so the pipeline stops at a chunk boundary.
+     */
+    public void checkNotCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Upload cancelled");
+        }
+    }
+
+    public void rowParsed() {
+        parsedRows.increment();
+        if (parent != null) {
+            parent.rowParsed();
+        }
+    }
+
+    /**
+     * Count rows parsed elsewhere, such as the chunks of a distributed upload ingested by other nodes.
+     *
+     * @param count the number of parsed rows
+     */
+    public void rowsParsed(long count) {
+        parsedRows.add(count);
+        if (parent != null) {
+            parent.rowsParsed(count);
+        }
+    }
+
+    public void rowsInserted(long count) {
+        insertedRows.add(count);
+        if (parent != null) {
+            parent.rowsInserted(count);
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.chunkCommitted(this);
+        }
+    }
+
+    /**
+     * Count the rows which updated existing students, before the chunk is reported by {@link #rowsInserted(long)}.
+     *
+     * @param count the number of updating rows
+     */
+    public void rowsUpdated(long count) {
+        updatedRows.add(count);
+        if (parent != null) {
+            parent.rowsUpdated(count);
+        }
+    }
+
+    public void rowRejected() {
+        rejectedRows.increment();
+        if (parent != null) {
+            parent.rowRejected();
+        }
+    }
+
+    /**
+     * Count rows rejected elsewhere, without notifying the listener.
+     *
+     * @param count the number of rejected rows
+     */
+    public void rowsRejected(long count) {
+        rejectedRows.add(count);
+        if (parent != null) {
+            parent.rowsRejected(count);
+        }
+    }
+
+    public void rowRejected(RejectedRowDTO rejectedRow) {
+        rowRejected();
+        Listener current = listener;
+        if (current != null) {
+            current.rowRejected(rejectedRow);
+        }
+    }
+
+    public void bytesRead(long count) {
+        bytesRead.add(count);
+        if (parent != null) {
+            parent.bytesRead(count);
+        }
+    }
+
+    /**
+     * Set the number of bytes the upload is expected to read, used to estimate the remaining time.
+     *
+     * @param expectedBytes the expected number of bytes, or 0 if unknown
+     */
+    public void expectBytes(long expectedBytes) {
+        this.expectedBytes = expectedBytes;
+    }
+
+    public long getParsedRows() {
+        return parsedRows.sum();
+    }
+
+    public long getInsertedRows() {
+        return insertedRows.sum();
+    }
+
+    public long getUpdatedRows() {
+        return updatedRows.sum();
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the estimated number of seconds before all the expected bytes are read, or null if it is unknown
+     */
+    public Long getEtaSeconds() {
+        long start = startNanos;
+        long expected = expectedBytes;
+        long read = getBytesRead();
+        if (start == 0 || expected <= 0 || read == 0) {
+            return null;
+        }
+        if (endNanos != 0 || read >= expected) {
+            return 0L;
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        return (long) Math.ceil(elapsedSeconds * (expected - read) / read);
+    }
+
+    /**
+     * @return the number of rows parsed per second since the start of the upload
+     */
+    public double getRowsPerSecond() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(end - start);
+        return elapsedMillis == 0 ? 0 : getParsedRows() * 1000d / elapsedMillis;
+    }
+}
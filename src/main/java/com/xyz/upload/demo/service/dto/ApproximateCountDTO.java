@@ -0,0 +1,34 @@
+package com.xyz.upload.demo.service.dto;
+
+import java.time.Instant;
+
+/**
+ * A DTO representing a count of entities which may be outdated, with the time it was counted.
+ */
+public class ApproximateCountDTO {
+
+    private final long count;
+
+    private final Instant countedAt;
+
+    public ApproximateCountDTO(long count, Instant countedAt) {
+        this.count = count;
+        this.countedAt = countedAt;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Instant getCountedAt() {
+        return countedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ApproximateCountDTO{" +
+            "count=" + count +
+            ", countedAt=" + countedAt +
+            "}";
+    }
+}
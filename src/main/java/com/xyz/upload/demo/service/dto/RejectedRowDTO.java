@@ -0,0 +1,84 @@
+package com.xyz.upload.demo.service.dto;
+
+/**
+ * A DTO representing an uploaded row which was rejected, with the reason of the rejection.
+ */
+public class RejectedRowDTO {
+
+    /**
+     * The reasons of a rejection.
+     */
+    public enum Code {
+        /** The row has fewer columns than a Student. */
+        COLUMN_COUNT,
+        /** The row is not a valid Student. */
+        INVALID,
+        /** The row repeats a previous row of the upload. */
+        DUPLICATE
+    }
+
+    private long lineNumber;
+
+    private Code code;
+
+    private String content;
+
+    private String message;
+
+    public RejectedRowDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public RejectedRowDTO(long lineNumber, String content, String message) {
+        this.lineNumber = lineNumber;
+        this.content = content;
+        this.message = message;
+    }
+
+    public RejectedRowDTO(long lineNumber, Code code, String content, String message) {
+        this(lineNumber, content, message);
+        this.code = code;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(long lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public Code getCode() {
+        return code;
+    }
+
+    public void setCode(Code code) {
+        this.code = code;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "RejectedRowDTO{" +
+            "lineNumber=" + lineNumber +
+            ", code=" + code +
+            ", content='" + content + '\'' +
+            ", message='" + message + '\'' +
+            '}';
+    }
+}
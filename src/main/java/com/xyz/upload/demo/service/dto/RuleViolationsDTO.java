@@ -0,0 +1,60 @@
+package com.xyz.upload.demo.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO representing the rows of an upload violating a rule, with only the first of them.
+ */
+public class RuleViolationsDTO {
+
+    private String rule;
+
+    private long count;
+
+    private List<RejectedRowDTO> rows = new ArrayList<>();
+
+    public RuleViolationsDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public RuleViolationsDTO(String rule) {
+        this.rule = rule;
+    }
+
+    /**
+     * @return the violated rule, a Student constraint such as "firstName.NotNull", or "columnCount"
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    public void setRule(String rule) {
+        this.rule = rule;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public List<RejectedRowDTO> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<RejectedRowDTO> rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleViolationsDTO{" +
+            "rule='" + rule + "'" +
+            ", count=" + count +
+            ", rows=" + rows.size() +
+            '}';
+    }
+}
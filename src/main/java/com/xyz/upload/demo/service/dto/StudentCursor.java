@@ -0,0 +1,163 @@
+package com.xyz.upload.demo.service.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+
+import org.springframework.data.domain.Sort;
+
+import com.xyz.upload.demo.web.rest.errors.BadRequestAlertException;
+
+/**
+ * Position in the students sorted by a key, for keyset pagination.
+ * <p>
+ * A cursor is the (key, id) of the last student of a slice, the id breaking the ties of the key, and the next slice
+ * starts right after it. It is exchanged as an opaque URL-safe string, which also carries the sort, so following a
+ * cursor keeps the order of the first slice.
+ * <p>
+ * Only the non-null columns can be keys, as a null key could not be compared with the cursor.
+ */
+public final class StudentCursor {
+
+    /**
+     * The keys the students can be sorted by.
+     */
+    public enum Key {
+        ID("id"),
+        FIRST_NAME("firstName"),
+        AGE("age");
+
+        private final String property;
+
+        Key(String property) {
+            this.property = property;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        static Key fromProperty(String property) {
+            for (Key key : values()) {
+                if (key.property.equals(property)) {
+                    return key;
+                }
+            }
+            throw new BadRequestAlertException("Students can only be sorted by id, firstName or age after a cursor",
+                ENTITY_NAME, "invalidsort");
+        }
+    }
+
+    private static final String ENTITY_NAME = "student";
+
+    private static final String SEPARATOR = ",";
+
+    private final Key key;
+
+    private final Sort.Direction direction;
+
+    private final Long id;
+
+    private final Object value;
+
+    private StudentCursor(Key key, Sort.Direction direction, Long id, Object value) {
+        this.key = key;
+        this.direction = direction;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * Get the cursor before the first student in an order.
+     *
+     * @param sort the requested sort, whose first order is the key; unsorted is by ascending id
+     * @return the cursor of the first slice
+     */
+    public static StudentCursor first(Sort sort) {
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return new StudentCursor(Key.ID, Sort.Direction.ASC, null, null);
+        }
+        Sort.Order order = orders.next();
+        return new StudentCursor(Key.fromProperty(order.getProperty()), order.getDirection(), null, null);
+    }
+
+    /**
+     * Decode a cursor returned with a previous slice.
+     *
+     * @param cursor the encoded cursor
+     * @return the cursor
+     * @throws BadRequestAlertException if the cursor was not encoded by {@link #encode()}
+     */
+    public static StudentCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // the value is last, as a first name may contain the separator
+            String[] fields = decoded.split(SEPARATOR, 4);
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("Expected 4 fields in " + decoded);
+            }
+            Key key = Key.fromProperty(fields[0]);
+            Long id = Long.valueOf(fields[2]);
+            Object value = key == Key.AGE ? Integer.valueOf(fields[3]) : key == Key.FIRST_NAME ? fields[3] : id;
+            return new StudentCursor(key, Sort.Direction.fromString(fields[1]), id, value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid cursor", ENTITY_NAME, "invalidcursor");
+        }
+    }
+
+    /**
+     * Get the cursor right after a student, in the same order as this cursor.
+     *
+     * @param last the last student of a slice
+     * @return the cursor of the next slice
+     */
+    public StudentCursor next(StudentDTO last) {
+        Object lastValue = key == Key.AGE ? last.getAge() : key == Key.FIRST_NAME ? last.getFirstName() : last.getId();
+        return new StudentCursor(key, direction, last.getId(), lastValue);
+    }
+
+    /**
+     * @return the opaque form of this cursor, to be decoded with {@link #decode(String)}
+     */
+    public String encode() {
+        String decoded = key.getProperty() + SEPARATOR + direction.name() + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Key getKey() {
+        return key;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return the id of the last student before the cursor, or null for the first slice
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return the key of the last student before the cursor, or null for the first slice
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    @Override
+    public String toString() {
+        return "StudentCursor{" +
+            "key=" + key +
+            ", direction=" + direction +
+            ", id=" + id +
+            ", value=" + value +
+            "}";
+    }
+}
@@ -0,0 +1,109 @@
+package com.xyz.upload.demo.service.dto;
+
+import java.time.Instant;
+
+import com.xyz.upload.demo.service.UploadOptions;
+
+/**
+ * A DTO representing the checkpoint of a resumable Student upload.
+ */
+public class UploadCheckpointDTO {
+
+    private String uploadId;
+
+    private long lineNumber;
+
+    private UploadOptions.Parser parser;
+
+    private int chunkCount;
+
+    private long insertedRows;
+
+    private boolean completed;
+
+    private Instant createdDate;
+
+    private Instant lastModifiedDate;
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    /**
+     * @return the line of the last row covered by a committed chunk
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(long lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * @return the CSV parser whose line numbers the checkpoint counts, or null if unknown
+     */
+    public UploadOptions.Parser getParser() {
+        return parser;
+    }
+
+    public void setParser(UploadOptions.Parser parser) {
+        this.parser = parser;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public long getInsertedRows() {
+        return insertedRows;
+    }
+
+    public void setInsertedRows(long insertedRows) {
+        this.insertedRows = insertedRows;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadCheckpointDTO{" +
+            "uploadId='" + uploadId + "'" +
+            ", lineNumber=" + lineNumber +
+            ", parser=" + parser +
+            ", chunkCount=" + chunkCount +
+            ", insertedRows=" + insertedRows +
+            ", completed=" + completed +
+            "}";
+    }
+}
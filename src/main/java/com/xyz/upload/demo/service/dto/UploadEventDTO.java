@@ -0,0 +1,151 @@
+package com.xyz.upload.demo.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A DTO representing an event of an upload, streamed to the client while the upload is ingested.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UploadEventDTO {
+
+    public enum Type {
+        PROGRESS, REJECTED, SUMMARY, ERROR
+    }
+
+    private Type type;
+
+    private Long parsedRows;
+
+    private Long insertedRows;
+
+    private Long rejectedRows;
+
+    private Double rowsPerSecond;
+
+    private Long etaSeconds;
+
+    private RejectedRowDTO row;
+
+    private UploadSummaryDTO summary;
+
+    private String message;
+
+    public static UploadEventDTO progress(long parsedRows, long insertedRows, long rejectedRows) {
+        UploadEventDTO event = new UploadEventDTO();
+        event.type = Type.PROGRESS;
+        event.parsedRows = parsedRows;
+        event.insertedRows = insertedRows;
+        event.rejectedRows = rejectedRows;
+        return event;
+    }
+
+    public static UploadEventDTO rejected(RejectedRowDTO row) {
+        UploadEventDTO event = new UploadEventDTO();
+        event.type = Type.REJECTED;
+        event.row = row;
+        return event;
+    }
+
+    public static UploadEventDTO summary(UploadSummaryDTO summary) {
+        UploadEventDTO event = new UploadEventDTO();
+        event.type = Type.SUMMARY;
+        event.summary = summary;
+        return event;
+    }
+
+    public static UploadEventDTO error(String message) {
+        UploadEventDTO event = new UploadEventDTO();
+        event.type = Type.ERROR;
+        event.message = message;
+        return event;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getParsedRows() {
+        return parsedRows;
+    }
+
+    public void setParsedRows(Long parsedRows) {
+        this.parsedRows = parsedRows;
+    }
+
+    public Long getInsertedRows() {
+        return insertedRows;
+    }
+
+    public void setInsertedRows(Long insertedRows) {
+        this.insertedRows = insertedRows;
+    }
+
+    public Long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(Long rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public Double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(Double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * @return the estimated number of seconds before the upload is ingested, or null if it is unknown
+     */
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public RejectedRowDTO getRow() {
+        return row;
+    }
+
+    public void setRow(RejectedRowDTO row) {
+        this.row = row;
+    }
+
+    public UploadSummaryDTO getSummary() {
+        return summary;
+    }
+
+    public void setSummary(UploadSummaryDTO summary) {
+        this.summary = summary;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadEventDTO{" +
+            "type=" + type +
+            ", parsedRows=" + parsedRows +
+            ", insertedRows=" + insertedRows +
+            ", rejectedRows=" + rejectedRows +
+            ", rowsPerSecond=" + rowsPerSecond +
+            ", etaSeconds=" + etaSeconds +
+            ", row=" + row +
+            ", message='" + message + "'" +
+            "}";
+    }
+}
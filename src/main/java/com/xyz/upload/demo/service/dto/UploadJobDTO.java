@@ -0,0 +1,162 @@
+package com.xyz.upload.demo.service.dto;
+
+import java.time.Instant;
+
+/**
+ * A DTO representing the status of an asynchronous upload job.
+ */
+public class UploadJobDTO {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private String id;
+
+    private Status status;
+
+    private String fileName;
+
+    private Instant createdDate;
+
+    private Instant finishedDate;
+
+    private long parsedRows;
+
+    private long insertedRows;
+
+    private long updatedRows;
+
+    private long rejectedRows;
+
+    private double rowsPerSecond;
+
+    private Long etaSeconds;
+
+    private String errorMessage;
+
+    private UploadSummaryDTO summary;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public Instant getFinishedDate() {
+        return finishedDate;
+    }
+
+    public void setFinishedDate(Instant finishedDate) {
+        this.finishedDate = finishedDate;
+    }
+
+    public long getParsedRows() {
+        return parsedRows;
+    }
+
+    public void setParsedRows(long parsedRows) {
+        this.parsedRows = parsedRows;
+    }
+
+    public long getInsertedRows() {
+        return insertedRows;
+    }
+
+    public void setInsertedRows(long insertedRows) {
+        this.insertedRows = insertedRows;
+    }
+
+    /**
+     * @return the number of rows which updated existing students, for a merge upload
+     */
+    public long getUpdatedRows() {
+        return updatedRows;
+    }
+
+    public void setUpdatedRows(long updatedRows) {
+        this.updatedRows = updatedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(long rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * @return the estimated number of seconds before the upload is ingested, or null if it is unknown
+     */
+    public Long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(Long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public UploadSummaryDTO getSummary() {
+        return summary;
+    }
+
+    public void setSummary(UploadSummaryDTO summary) {
+        this.summary = summary;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadJobDTO{" +
+            "id='" + id + '\'' +
+            ", status=" + status +
+            ", fileName='" + fileName + '\'' +
+            ", parsedRows=" + parsedRows +
+            ", insertedRows=" + insertedRows +
+            ", updatedRows=" + updatedRows +
+            ", rejectedRows=" + rejectedRows +
+            '}';
+    }
+}
@@ -0,0 +1,197 @@
+package com.xyz.upload.demo.service.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DTO summarizing the outcome of a Student upload.
+ * <p>
+ * Only the first rejected rows are kept, so the size of the summary does not depend on the size of the upload.
+ */
+public class UploadSummaryDTO {
+
+    private String fileName;
+
+    private long parsedRows;
+
+    private long insertedRows;
+
+    private long updatedRows;
+
+    private long rejectedRows;
+
+    private List<RejectedRowDTO> errors = new ArrayList<>();
+
+    private boolean errorsTruncated;
+
+    private String errorReportId;
+
+    private long resumedAfterLine;
+
+    private String contentHash;
+
+    private boolean duplicate;
+
+    private List<UploadSummaryDTO> entries;
+
+    private boolean dryRun;
+
+    private List<RuleViolationsDTO> violations;
+
+    /**
+     * @return the name of the entry, for the summary of an entry of a zip bundle
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getParsedRows() {
+        return parsedRows;
+    }
+
+    public void setParsedRows(long parsedRows) {
+        this.parsedRows = parsedRows;
+    }
+
+    public long getInsertedRows() {
+        return insertedRows;
+    }
+
+    public void setInsertedRows(long insertedRows) {
+        this.insertedRows = insertedRows;
+    }
+
+    /**
+     * @return the number of rows which updated existing students, for a merge upload
+     */
+    public long getUpdatedRows() {
+        return updatedRows;
+    }
+
+    public void setUpdatedRows(long updatedRows) {
+        this.updatedRows = updatedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(long rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    public List<RejectedRowDTO> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RejectedRowDTO> errors) {
+        this.errors = errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    /**
+     * @return the id of the report of all the rejected rows, see GET /api/upload/{id}/errors, or null if no row
+     * was rejected
+     */
+    public String getErrorReportId() {
+        return errorReportId;
+    }
+
+    public void setErrorReportId(String errorReportId) {
+        this.errorReportId = errorReportId;
+    }
+
+    /**
+     * @return the last line committed by a previous attempt of a resumed upload, or 0
+     */
+    public long getResumedAfterLine() {
+        return resumedAfterLine;
+    }
+
+    public void setResumedAfterLine(long resumedAfterLine) {
+        this.resumedAfterLine = resumedAfterLine;
+    }
+
+    /**
+     * @return the hex SHA-256 of the uploaded content, or null if it was not spooled
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return whether the content was already ingested, and this summary is the one of the first ingestion
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    /**
+     * @return for a zip bundle, the summaries of its entries, which report their own rejected rows; otherwise null
+     */
+    public List<UploadSummaryDTO> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<UploadSummaryDTO> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @return whether the upload was only validated, nothing being written
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * @return for a dry run, the rows violating each rule; otherwise null
+     */
+    public List<RuleViolationsDTO> getViolations() {
+        return violations;
+    }
+
+    public void setViolations(List<RuleViolationsDTO> violations) {
+        this.violations = violations;
+    }
+
+    @Override
+    public String toString() {
+        return "UploadSummaryDTO{" +
+            "fileName='" + fileName + "'" +
+            ", parsedRows=" + parsedRows +
+            ", insertedRows=" + insertedRows +
+            ", updatedRows=" + updatedRows +
+            ", rejectedRows=" + rejectedRows +
+            ", errorsTruncated=" + errorsTruncated +
+            ", errorReportId='" + errorReportId + "'" +
+            ", resumedAfterLine=" + resumedAfterLine +
+            ", contentHash='" + contentHash + "'" +
+            ", duplicate=" + duplicate +
+            ", dryRun=" + dryRun +
+            '}';
+    }
+}
@@ -0,0 +1,351 @@
+package com.xyz.upload.demo.service.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Allocation-light {@link StudentCsvReader} working directly on UTF-8 bytes.
+ * <p>
+ * Fields are unquoted into reusable byte buffers, following RFC 4180: quoted fields may contain
+ * delimiters and line breaks, and a doubled quote stands for a quote. Delimiters, quotes and line
+ * breaks are ASCII, so they can never be part of a multi-byte UTF-8 sequence. Names are trimmed on
+ * the bytes before being decoded, and the age is parsed from the bytes without creating a String.
+ * <p>
+ * A region of a file can also be read through memory-mapped windows instead of a stream, so its bytes are
+ * scanned where the operating system caches them, without being copied into a heap buffer first.
+ */
+public class ByteStudentCsvReader implements StudentCsvReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAPPED_WINDOW_SIZE = 8 * 1024 * 1024;
+
+    private static final int NO_BYTE = -2;
+
+    private final InputStream in;
+
+    private final byte[] buffer;
+
+    private final FileChannel channel;
+
+    private final long end;
+
+    private final LongConsumer bytesRead;
+
+    private final int windowSize;
+
+    private long mappedTo;
+
+    private ByteBuffer window;
+
+    private int position;
+
+    private int limit;
+
+    private int pushedBack = NO_BYTE;
+
+    private boolean skipHeader;
+
+    private byte[][] fields = new byte[4][64];
+
+    private int[] fieldLengths = new int[4];
+
+    private int fieldCount;
+
+    private boolean quotedRecord;
+
+    private long lines;
+
+    private boolean partialLine;
+
+    private long lineNumber;
+
+    public ByteStudentCsvReader(InputStream in, boolean skipHeader) {
+        this.in = in;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.channel = null;
+        this.end = 0;
+        this.bytesRead = null;
+        this.windowSize = 0;
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * Create a reader of a region of a file, mapped in memory window by window.
+     * <p>
+     * The channel is not closed by the reader.
+     *
+     * @param channel the channel of the file
+     * @param start the position of the first byte of the region
+     * @param end the position following the last byte of the region
+     * @param skipHeader whether the first record is a header
+     * @param bytesRead called with the size of every window, as it is mapped
+     */
+    public ByteStudentCsvReader(FileChannel channel, long start, long end, boolean skipHeader,
+            LongConsumer bytesRead) {
+        this(channel, start, end, skipHeader, bytesRead, MAPPED_WINDOW_SIZE);
+    }
+
+    ByteStudentCsvReader(FileChannel channel, long start, long end, boolean skipHeader, LongConsumer bytesRead,
+            int windowSize) {
+        this.in = null;
+        this.buffer = null;
+        this.channel = channel;
+        this.mappedTo = start;
+        this.end = end;
+        this.bytesRead = bytesRead;
+        this.windowSize = windowSize;
+        this.skipHeader = skipHeader;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (skipHeader) {
+            skipHeader = false;
+            if (!readRecord()) {
+                return false;
+            }
+        }
+        while (readRecord()) {
+            if (fieldCount != 1 || fieldLengths[0] != 0 || quotedRecord) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean readRecord() throws IOException {
+        int b = read();
+        if (b == -1) {
+            return false;
+        }
+        lineNumber = lines + 1;
+        fieldCount = 0;
+        quotedRecord = false;
+        while (true) {
+            int field = startField();
+            if (b == '"') {
+                quotedRecord = true;
+                b = readQuoted(field);
+            } else {
+                while (b != ',' && b != '\n' && b != '\r' && b != -1) {
+                    append(field, b);
+                    b = read();
+                }
+            }
+            if (b == ',') {
+                b = read();
+                continue;
+            }
+            endLine(b);
+            return true;
+        }
+    }
+
+    /**
+     * Read a quoted field, the opening quote being already consumed.
+     *
+     * @return the byte following the closing quote
+     */
+    private int readQuoted(int field) throws IOException {
+        while (true) {
+            int b = read();
+            if (b == -1) {
+                throw new IllegalStateException("EOF reached before encapsulated token finished, line " + lineNumber);
+            }
+            if (b == '"') {
+                int following = read();
+                if (following != '"') {
+                    if (following != ',' && following != '\n' && following != '\r' && following != -1) {
+                        throw new IllegalStateException("Invalid char between encapsulated token and delimiter, line "
+                            + (lines + 1));
+                    }
+                    return following;
+                }
+            } else if (b == '\n') {
+                lines++;
+            }
+            append(field, b);
+        }
+    }
+
+    private void endLine(int b) throws IOException {
+        if (b == '\r') {
+            int following = read();
+            if (following != '\n') {
+                unread(following);
+            }
+            lines++;
+        } else if (b == '\n') {
+            lines++;
+        } else {
+            // end of the content without a line break
+            partialLine = true;
+        }
+    }
+
+    private int startField() {
+        if (fieldCount == fields.length) {
+            fields = Arrays.copyOf(fields, fieldCount * 2);
+            fieldLengths = Arrays.copyOf(fieldLengths, fieldCount * 2);
+        }
+        if (fields[fieldCount] == null) {
+            fields[fieldCount] = new byte[64];
+        }
+        fieldLengths[fieldCount] = 0;
+        return fieldCount++;
+    }
+
+    private void append(int field, int b) {
+        byte[] bytes = fields[field];
+        int length = fieldLengths[field];
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, length * 2);
+            fields[field] = bytes;
+        }
+        bytes[length] = (byte) b;
+        fieldLengths[field] = length + 1;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != NO_BYTE) {
+            int b = pushedBack;
+            pushedBack = NO_BYTE;
+            return b;
+        }
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return (channel != null ? window.get(position++) : buffer[position++]) & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        position = 0;
+        if (channel == null) {
+            limit = in.read(buffer, 0, BUFFER_SIZE);
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+        limit = (int) Math.min(end - mappedTo, windowSize);
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, mappedTo, limit);
+        mappedTo += limit;
+        bytesRead.accept(limit);
+        return true;
+    }
+
+    private void unread(int b) {
+        pushedBack = b;
+    }
+
+    @Override
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public long getLineCount() {
+        return partialLine ? lines + 1 : lines;
+    }
+
+    @Override
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    public String getFirstName() {
+        return trimmed(0);
+    }
+
+    @Override
+    public String getLastName() {
+        return trimmed(1);
+    }
+
+    @Override
+    public int getAge() {
+        byte[] bytes = fields[2];
+        int start = trimStart(2);
+        int end = trimEnd(2, start);
+        if (start == end) {
+            return 0;
+        }
+        boolean negative = bytes[start] == '-';
+        if (negative || bytes[start] == '+') {
+            start++;
+            if (start == end) {
+                return 0;
+            }
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return 0;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                return 0;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? 0 : (int) value;
+    }
+
+    @Override
+    public String getContent() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                content.append(',');
+            }
+            content.append(new String(fields[i], 0, fieldLengths[i], StandardCharsets.UTF_8));
+        }
+        return content.toString();
+    }
+
+    private String trimmed(int field) {
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        return start == end ? "" : new String(fields[field], start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private int trimStart(int field) {
+        byte[] bytes = fields[field];
+        int start = 0;
+        int length = fieldLengths[field];
+        // same as String.trim: control characters and spaces; UTF-8 continuation bytes are above 0x7F
+        while (start < length && (bytes[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int field, int start) {
+        byte[] bytes = fields[field];
+        int end = fieldLengths[field];
+        while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.xyz.upload.demo.service.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * {@link StudentCsvReader} backed by commons-csv.
+ */
+public class CommonsStudentCsvReader implements StudentCsvReader {
+
+    private static final String[] HEADERS = { "First Name", "Last Name", "Age" };
+
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT.withHeader(HEADERS).withIgnoreEmptyLines(false);
+
+    private final CSVParser parser;
+
+    private final Iterator<CSVRecord> records;
+
+    private CSVRecord current;
+
+    public CommonsStudentCsvReader(Reader reader, boolean skipHeader) throws IOException {
+        this.parser = (skipHeader ? FORMAT.withSkipHeaderRecord() : FORMAT).parse(reader);
+        this.records = parser.iterator();
+    }
+
+    @Override
+    public boolean next() {
+        while (records.hasNext()) {
+            current = records.next();
+            // record numbers count empty lines, as they are not ignored by the format
+            if (current.size() != 1 || !current.get(0).isEmpty()) {
+                return true;
+            }
+        }
+        current = null;
+        return false;
+    }
+
+    @Override
+    public long getLineNumber() {
+        return current.getRecordNumber();
+    }
+
+    @Override
+    public long getLineCount() {
+        return parser.getRecordNumber();
+    }
+
+    @Override
+    public int getFieldCount() {
+        return current.size();
+    }
+
+    @Override
+    public String getFirstName() {
+        return StringUtils.trimToEmpty(current.get(0));
+    }
+
+    @Override
+    public String getLastName() {
+        return StringUtils.trimToEmpty(current.get(1));
+    }
+
+    @Override
+    public int getAge() {
+        return NumberUtils.toInt(StringUtils.trimToEmpty(current.get(2)), 0);
+    }
+
+    @Override
+    public String getContent() {
+        return String.join(",", current);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
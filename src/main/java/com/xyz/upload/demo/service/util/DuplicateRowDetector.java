@@ -0,0 +1,135 @@
+package com.xyz.upload.demo.service.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import com.xyz.upload.demo.service.dto.StudentDTO;
+
+/**
+ * Detector of the rows repeated within an upload.
+ * <p>
+ * Every accepted row is added to an {@link OffHeapBloomFilter}, so most rows are known to be new without
+ * being compared to anything. A row which may have been seen is verified exactly: against the accepted rows
+ * not written yet, and then against the students written by this upload, whose ids are recorded as ranges.
+ * The memory used is the fixed size of the filter, plus a chunk of rows per writer and at most a range per chunk.
+ * <p>
+ * This class is thread-safe, so the segments of a parallel upload can share a detector.
+ */
+public class DuplicateRowDetector {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final OffHeapBloomFilter bloomFilter;
+
+    private final Function<StudentDTO, List<Long>> findIds;
+
+    private final Set<List<Object>> pendingRows = new HashSet<>();
+
+    private final TreeMap<Long, Long> writtenIds = new TreeMap<>();
+
+    /**
+     * Create a detector.
+     *
+     * @param bloomFilter the filter of the rows seen by the detector
+     * @param findIds the function finding the ids of the students having the values of a row
+     */
+    public DuplicateRowDetector(OffHeapBloomFilter bloomFilter, Function<StudentDTO, List<Long>> findIds) {
+        this.bloomFilter = bloomFilter;
+        this.findIds = findIds;
+    }
+
+    /**
+     * Accept a row, unless it repeats a row already accepted.
+     * <p>
+     * An accepted row must be reported with {@link #written(List)} once it is written.
+     *
+     * @param student the row
+     * @return true if the row was accepted, false if it is a duplicate
+     */
+    public boolean accept(StudentDTO student) {
+        List<Object> key = keyOf(student);
+        synchronized (this) {
+            // a row is added to the filter and to the pending rows at once, so a concurrent copy finds either
+            if (!bloomFilter.put(hash(key, FNV_OFFSET_BASIS), hash(key, ~FNV_OFFSET_BASIS))) {
+                pendingRows.add(key);
+                return true;
+            }
+            if (pendingRows.contains(key)) {
+                return false;
+            }
+        }
+        if (isWritten(findIds.apply(student))) {
+            return false;
+        }
+        synchronized (this) {
+            // a false positive of the filter, unless a concurrent copy was accepted meanwhile
+            return pendingRows.add(key);
+        }
+    }
+
+    /**
+     * Report accepted rows as written.
+     * <p>
+     * Rows merged into existing students have no id: their later copies are merged again, to the same effect.
+     *
+     * @param students the written rows, with the consecutive ids they were given, or without ids if they were merged
+     */
+    public synchronized void written(List<StudentDTO> students) {
+        if (students.isEmpty()) {
+            return;
+        }
+        Long firstId = students.get(0).getId();
+        if (firstId != null) {
+            long lastId = firstId + students.size() - 1;
+            Map.Entry<Long, Long> previous = writtenIds.floorEntry(firstId);
+            // the ranges of the chunks of a single writer are usually contiguous
+            if (previous != null && previous.getValue() == firstId - 1) {
+                writtenIds.put(previous.getKey(), lastId);
+            } else {
+                writtenIds.put(firstId, lastId);
+            }
+        }
+        for (StudentDTO student : students) {
+            pendingRows.remove(keyOf(student));
+        }
+    }
+
+    private synchronized boolean isWritten(List<Long> ids) {
+        for (Long id : ids) {
+            Map.Entry<Long, Long> range = writtenIds.floorEntry(id);
+            if (range != null && id <= range.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Object> keyOf(StudentDTO student) {
+        return Arrays.asList(student.getFirstName(), student.getLastName(), student.getAge());
+    }
+
+    private static long hash(List<Object> key, long seed) {
+        long hash = seed;
+        for (Object value : key) {
+            String field = String.valueOf(value);
+            for (int i = 0; i < field.length(); i++) {
+                hash = (hash ^ field.charAt(i)) * FNV_PRIME;
+            }
+            // separates the fields, so "ab","c" and "a","bc" differ
+            hash = (hash ^ 0x1f) * FNV_PRIME;
+        }
+        // the murmur3 finalizer spreads the bits of the FNV hash
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,302 @@
+package com.xyz.upload.demo.service.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+
+/**
+ * Append-only file of the rejected rows of an upload.
+ * <p>
+ * Rows are stored one per line as "lineNumber TAB content TAB message TAB code", tabs, line breaks and backslashes
+ * being escaped with a backslash, and the code being left out when the row has none. The byte offset of every
+ * {@value #INDEX_INTERVAL}th row is kept in memory, so a page of rows is read by seeking close to it instead of
+ * scanning the file from the start. The file is created with the first row, and can be read while rows are still
+ * being appended. A report is open from its creation until it is closed, even before its first row.
+ */
+public class ErrorReport implements Closeable {
+
+    static final int INDEX_INTERVAL = 256;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final String id;
+
+    private final Path file;
+
+    private final Instant createdDate;
+
+    private OutputStream out;
+
+    private boolean closed;
+
+    private long size;
+
+    private long rowCount;
+
+    private long[] offsets = new long[16];
+
+    private ErrorReport(String id, Path file, Instant createdDate, boolean closed) {
+        this.id = id;
+        this.file = file;
+        this.createdDate = createdDate;
+        this.closed = closed;
+    }
+
+    /**
+     * Create an empty report, the file being created with the first row.
+     *
+     * @param id the id of the report
+     * @param file the file of the report, which must not exist
+     * @return the report
+     */
+    public static ErrorReport create(String id, Path file) {
+        return new ErrorReport(id, file, Instant.now(), false);
+    }
+
+    /**
+     * Open an existing report file, indexing its rows.
+     *
+     * @param id the id of the report
+     * @param file the file of the report
+     * @return the report, closed for appending
+     * @throws IOException if the file cannot be read
+     */
+    public static ErrorReport open(String id, Path file) throws IOException {
+        ErrorReport report = new ErrorReport(id, file, Files.getLastModifiedTime(file).toInstant(), true);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            long position = 0;
+            boolean lineStart = true;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (lineStart) {
+                    report.indexRow(position);
+                    lineStart = false;
+                }
+                position++;
+                if (b == '\n') {
+                    lineStart = true;
+                }
+            }
+            report.size = position;
+        }
+        return report;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return when the report was created, or when its file was last written for an opened report
+     */
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    /**
+     * @return true if rows can still be appended, until the report is closed
+     */
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Append a rejected row.
+     *
+     * @param row the row to append
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void append(RejectedRowDTO row) throws IOException {
+        if (out == null) {
+            out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE), BUFFER_SIZE);
+        }
+        byte[] line = encode(row).getBytes(StandardCharsets.UTF_8);
+        indexRow(size);
+        out.write(line);
+        size += line.length;
+    }
+
+    /**
+     * Append all the rows of another report, shifting their line numbers.
+     *
+     * @param part the report to append
+     * @param lineOffset the number of lines before the part in the upload
+     * @throws IOException if a file cannot be read or written
+     */
+    public void appendAll(ErrorReport part, long lineOffset) throws IOException {
+        if (!Files.exists(part.file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(part.file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                RejectedRowDTO row = decode(line);
+                row.setLineNumber(row.getLineNumber() + lineOffset);
+                append(row);
+            }
+        }
+    }
+
+    /**
+     * Read some rows of the report.
+     *
+     * @param from the index of the first row
+     * @param count the maximum number of rows to read
+     * @return the rows, fewer than count at the end of the report
+     * @throws IOException if the file cannot be read
+     */
+    public List<RejectedRowDTO> read(long from, int count) throws IOException {
+        long available;
+        long start;
+        synchronized (this) {
+            if (from >= rowCount || count <= 0) {
+                return Collections.emptyList();
+            }
+            if (out != null) {
+                out.flush();
+            }
+            available = Math.min(count, rowCount - from);
+            start = offsets[(int) (from / INDEX_INTERVAL)];
+        }
+        long skip = from % INDEX_INTERVAL;
+        List<RejectedRowDTO> rows = new ArrayList<>((int) available);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(start);
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), BUFFER_SIZE);
+            String line;
+            while (rows.size() < available && (line = reader.readLine()) != null) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    rows.add(decode(line));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Stop appending rows, the rows stay readable.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private void indexRow(long position) {
+        if (rowCount % INDEX_INTERVAL == 0) {
+            int slot = (int) (rowCount / INDEX_INTERVAL);
+            if (slot == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[slot] = position;
+        }
+        rowCount++;
+    }
+
+    static String encode(RejectedRowDTO row) {
+        StringBuilder line = new StringBuilder(64);
+        line.append(row.getLineNumber()).append('\t');
+        escape(row.getContent(), line);
+        line.append('\t');
+        escape(row.getMessage(), line);
+        if (row.getCode() != null) {
+            line.append('\t').append(row.getCode().name());
+        }
+        return line.append('\n').toString();
+    }
+
+    static RejectedRowDTO decode(String line) {
+        int firstTab = line.indexOf('\t');
+        int secondTab = line.indexOf('\t', firstTab + 1);
+        if (firstTab < 0 || secondTab < 0) {
+            throw new IllegalStateException("Corrupted error report line: " + line);
+        }
+        int thirdTab = line.indexOf('\t', secondTab + 1);
+        RejectedRowDTO row = new RejectedRowDTO(Long.parseLong(line.substring(0, firstTab)),
+            unescape(line.substring(firstTab + 1, secondTab)),
+            unescape(thirdTab < 0 ? line.substring(secondTab + 1) : line.substring(secondTab + 1, thirdTab)));
+        if (thirdTab >= 0) {
+            row.setCode(RejectedRowDTO.Code.valueOf(line.substring(thirdTab + 1)));
+        }
+        return row;
+    }
+
+    private static void escape(String value, StringBuilder line) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t':
+                    line.append("\\t");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+}
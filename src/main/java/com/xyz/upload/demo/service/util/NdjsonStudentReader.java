@@ -0,0 +1,135 @@
+package com.xyz.upload.demo.service.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * {@link StudentCsvReader} over JSON lines, one Student object per line, read with the Jackson token stream.
+ * <p>
+ * Objects use the field names of {@link com.xyz.upload.demo.service.dto.StudentDTO}; unknown fields are skipped.
+ * The field count of a record is the number of Student fields it has, so a record missing one of them
+ * is rejected like a CSV line missing a column.
+ */
+public class NdjsonStudentReader implements StudentCsvReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String age;
+
+    private int fieldCount;
+
+    private long lineNumber;
+
+    public NdjsonStudentReader(InputStream in) throws IOException {
+        this.parser = JSON_FACTORY.createParser(in);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return false;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("Expected a Student object at line " +
+                    parser.getTokenLocation().getLineNr() + " but found " + token);
+            }
+            lineNumber = parser.getTokenLocation().getLineNr();
+            readObject();
+            return true;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e.getOriginalMessage() + " at line " + e.getLocation().getLineNr(), e);
+        }
+    }
+
+    private void readObject() throws IOException {
+        firstName = null;
+        lastName = null;
+        age = null;
+        fieldCount = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value.isStructStart()) {
+                parser.skipChildren();
+                continue;
+            }
+            String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+            switch (name) {
+                case "firstName":
+                    firstName = text;
+                    fieldCount++;
+                    break;
+                case "lastName":
+                    lastName = text;
+                    fieldCount++;
+                    break;
+                case "age":
+                    age = text;
+                    fieldCount++;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public long getLineCount() {
+        // the location is on the next line once the line feed of the last object is read
+        JsonLocation location = parser.getCurrentLocation();
+        return location.getColumnNr() == 1 ? location.getLineNr() - 1 : location.getLineNr();
+    }
+
+    @Override
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    public String getFirstName() {
+        return StringUtils.trimToEmpty(firstName);
+    }
+
+    @Override
+    public String getLastName() {
+        return StringUtils.trimToEmpty(lastName);
+    }
+
+    @Override
+    public int getAge() {
+        return NumberUtils.toInt(StringUtils.trimToEmpty(age), 0);
+    }
+
+    @Override
+    public String getContent() {
+        return StringUtils.defaultString(firstName) + "," + StringUtils.defaultString(lastName) + "," +
+            StringUtils.defaultString(age);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
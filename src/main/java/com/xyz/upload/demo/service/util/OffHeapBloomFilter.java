@@ -0,0 +1,77 @@
+package com.xyz.upload.demo.service.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bloom filter whose bits are stored in a direct buffer, outside of the Java heap.
+ * <p>
+ * Its size is fixed when it is created, from the expected number of elements and the wanted false
+ * positive rate, and does not grow with the number of elements added. Elements are added as two
+ * independent 64-bit hashes, combined into the bit positions with double hashing.
+ * <p>
+ * This class is thread-safe.
+ */
+public class OffHeapBloomFilter {
+
+    private static final long MAX_BITS = (long) Integer.MAX_VALUE / Long.BYTES * Long.SIZE;
+
+    private final ByteBuffer bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * Create a filter sized for the expected number of elements.
+     *
+     * @param expectedElements the number of elements expected to be added
+     * @param falsePositiveRate the wanted probability that an element never added is reported as added
+     */
+    public OffHeapBloomFilter(long expectedElements, double falsePositiveRate) {
+        if (expectedElements < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter sizing: " + expectedElements + " elements, " +
+                falsePositiveRate + " false positive rate");
+        }
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedElements * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long words = Math.max(1, (Math.min(optimalBits, MAX_BITS) + Long.SIZE - 1) / Long.SIZE);
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedElements * ln2));
+        this.bits = ByteBuffer.allocateDirect((int) (words * Long.BYTES));
+    }
+
+    /**
+     * Add an element.
+     *
+     * @param hash1 the first hash of the element
+     * @param hash2 the second hash of the element, independent from the first one
+     * @return false if the element was certainly not added before, true if it may have been
+     */
+    public synchronized boolean put(long hash1, long hash2) {
+        boolean present = true;
+        long combined = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(combined, bitCount);
+            int offset = (int) (bit >>> 6) * Long.BYTES;
+            long word = bits.getLong(offset);
+            long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                present = false;
+                bits.putLong(offset, word | mask);
+            }
+            combined += hash2;
+        }
+        return present;
+    }
+
+    /**
+     * @return the number of bytes used by the filter
+     */
+    public long getSizeInBytes() {
+        return bitCount / Byte.SIZE;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+}
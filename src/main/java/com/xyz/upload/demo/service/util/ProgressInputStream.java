@@ -0,0 +1,29 @@
+package com.xyz.upload.demo.service.util;
+
+import java.io.InputStream;
+
+import org.apache.commons.io.input.ProxyInputStream;
+
+import com.xyz.upload.demo.service.UploadProgress;
+
+/**
+ * Stream counting the bytes read into the progress of an upload.
+ * <p>
+ * Bytes are counted once per read call, which the readers of an upload make with large buffers.
+ */
+public class ProgressInputStream extends ProxyInputStream {
+
+    private final UploadProgress progress;
+
+    public ProgressInputStream(InputStream in, UploadProgress progress) {
+        super(in);
+        this.progress = progress;
+    }
+
+    @Override
+    protected void afterRead(int n) {
+        if (n > 0) {
+            progress.bytesRead(n);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.xyz.upload.demo.service.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Cursor over the records of a Student CSV, in the "First Name,Last Name,Age" layout.
+ * <p>
+ * Empty lines are skipped. Malformed content is reported with an {@link IllegalStateException}.
+ */
+public interface StudentCsvReader extends Closeable {
+
+    /**
+     * Move to the next record.
+     *
+     * @return false if there is no more record
+     * @throws IOException if the content cannot be read
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the line number where the current record starts, relative to the start of the content
+     */
+    long getLineNumber();
+
+    /**
+     * @return the number of lines read so far
+     */
+    long getLineCount();
+
+    int getFieldCount();
+
+    /**
+     * @return the trimmed first name of the current record
+     */
+    String getFirstName();
+
+    /**
+     * @return the trimmed last name of the current record
+     */
+    String getLastName();
+
+    /**
+     * @return the age of the current record, or 0 if it is not an integer
+     */
+    int getAge();
+
+    /**
+     * @return the fields of the current record joined with commas, for error reports
+     */
+    String getContent();
+}
@@ -1,5 +1,7 @@
 package com.xyz.upload.demo.web.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -11,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -20,13 +23,21 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.codahale.metrics.annotation.Timed;
 import com.xyz.upload.demo.service.StudentQueryService;
 import com.xyz.upload.demo.service.StudentService;
+import com.xyz.upload.demo.service.StudentUploadService;
+import com.xyz.upload.demo.service.UploadAdmissionService;
+import com.xyz.upload.demo.service.UploadOptions;
+import com.xyz.upload.demo.service.UploadProgress;
+import com.xyz.upload.demo.service.dto.ApproximateCountDTO;
 import com.xyz.upload.demo.service.dto.StudentCriteria;
+import com.xyz.upload.demo.service.dto.StudentCursor;
 import com.xyz.upload.demo.service.dto.StudentDTO;
+import com.xyz.upload.demo.service.dto.UploadSummaryDTO;
 import com.xyz.upload.demo.web.rest.errors.BadRequestAlertException;
 import com.xyz.upload.demo.web.rest.util.HeaderUtil;
 import com.xyz.upload.demo.web.rest.util.PaginationUtil;
@@ -48,9 +59,16 @@ public class StudentResource {
 
     private final StudentQueryService studentQueryService;
 
-    public StudentResource(StudentService studentService, StudentQueryService studentQueryService) {
+    private final StudentUploadService studentUploadService;
+
+    private final UploadAdmissionService uploadAdmissionService;
+
+    public StudentResource(StudentService studentService, StudentQueryService studentQueryService,
+            StudentUploadService studentUploadService, UploadAdmissionService uploadAdmissionService) {
         this.studentService = studentService;
         this.studentQueryService = studentQueryService;
+        this.studentUploadService = studentUploadService;
+        this.uploadAdmissionService = uploadAdmissionService;
     }
 
     /**
@@ -73,6 +91,29 @@ public class StudentResource {
             .body(result);
     }
 
+    /**
+     * POST  /students/bulk : Create students from JSON lines, one student object per line.
+     * <p>
+     * The body is read as a token stream and the students are validated and inserted in chunks,
+     * like the rows of a CSV upload.
+     *
+     * @param body the JSON lines
+     * @return the ResponseEntity with status 200 (OK) and with body the summary of the ingestion,
+     * or with status 400 (Bad Request) if the body is not valid JSON lines,
+     * or with status 429 (Too Many Requests) if too many uploads are in progress
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(path = "/students/bulk", consumes = { "application/x-ndjson", "application/jsonl" })
+    @Timed
+    public ResponseEntity<UploadSummaryDTO> createStudents(InputStream body) throws IOException {
+        log.debug("REST request to bulk save Students");
+        try (UploadAdmissionService.Permit permit = uploadAdmissionService.admit()) {
+            UploadSummaryDTO summary = studentUploadService.upload(body,
+                new UploadOptions().format(UploadOptions.Format.NDJSON), new UploadProgress());
+            return ResponseEntity.ok().body(summary);
+        }
+    }
+
     /**
      * PUT  /students : Updates an existing student.
      *
@@ -97,15 +138,50 @@ public class StudentResource {
 
     /**
      * GET  /students : get all the students.
+     * <p>
+     * With an after parameter, the students are read after a cursor rather than at a page number: an empty cursor
+     * starts from the first student in the order of the sort, which can be by id, firstName or age, and the Link
+     * header carries the cursor of the next slice. A slice costs the same whatever its depth.
+     * <p>
+     * A page can also be read without counting the students at every request: with count=NONE, there is no total
+     * count and one more student is read to know whether there is a next page; with count=APPROXIMATE, the total
+     * count is a cached one, with the time it was counted in the X-Total-Count-Date header.
      *
      * @param pageable the pagination information
      * @param criteria the criterias which the requested entities should match
-     * @return the ResponseEntity with status 200 (OK) and the list of students in body
+     * @param after the cursor of the slice, empty for the first one, or null to read a page
+     * @param count how the total count of a page is returned
+     * @return the ResponseEntity with status 200 (OK) and the list of students in body,
+     * or with status 400 (Bad Request) if the cursor or its sort is not valid
      */
     @GetMapping("/students")
     @Timed
-    public ResponseEntity<List<StudentDTO>> getAllStudents(StudentCriteria criteria, Pageable pageable) {
+    public ResponseEntity<List<StudentDTO>> getAllStudents(StudentCriteria criteria, Pageable pageable,
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "count", defaultValue = "EXACT") PaginationUtil.TotalCount count) {
         log.debug("REST request to get Students by criteria: {}", criteria);
+        if (after != null) {
+            StudentCursor cursor = after.isEmpty()
+                ? StudentCursor.first(pageable.getSort()) : StudentCursor.decode(after);
+            Slice<StudentDTO> slice = studentQueryService.findByCriteria(criteria, cursor, pageable.getPageSize());
+            String nextCursor = slice.hasNext()
+                ? cursor.next(slice.getContent().get(slice.getNumberOfElements() - 1)).encode() : null;
+            HttpHeaders headers = PaginationUtil.generateKeysetPaginationHttpHeaders(nextCursor, slice.getSize(),
+                "/api/students");
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
+        if (count != PaginationUtil.TotalCount.EXACT) {
+            Slice<StudentDTO> slice = studentQueryService.findSliceByCriteria(criteria, pageable);
+            HttpHeaders headers;
+            if (count == PaginationUtil.TotalCount.APPROXIMATE) {
+                ApproximateCountDTO total = studentQueryService.approximateCountByCriteria(criteria);
+                headers = PaginationUtil.generateApproximatePaginationHttpHeaders(slice, total.getCount(),
+                    total.getCountedAt(), "/api/students");
+            } else {
+                headers = PaginationUtil.generateSliceHttpHeaders(slice, "/api/students");
+            }
+            return ResponseEntity.ok().headers(headers).body(slice.getContent());
+        }
         Page<StudentDTO> page = studentQueryService.findByCriteria(criteria, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/students");
         return ResponseEntity.ok().headers(headers).body(page.getContent());
@@ -1,36 +1,52 @@
 package com.xyz.upload.demo.web.rest;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-import javax.validation.ConstraintViolation;
-import javax.validation.Validation;
-import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
-
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
+import java.util.Optional;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.xyz.upload.demo.service.StudentService;
-import com.xyz.upload.demo.service.dto.StudentDTO;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xyz.upload.demo.service.ErrorReportService;
+import com.xyz.upload.demo.service.UploadAdmissionService;
+import com.xyz.upload.demo.service.UploadContentService;
+import com.xyz.upload.demo.service.UploadProgress;
+import com.xyz.upload.demo.service.UploadJobEventService;
+import com.xyz.upload.demo.service.UploadJobService;
+import com.xyz.upload.demo.service.UploadOptions;
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+import com.xyz.upload.demo.service.dto.UploadEventDTO;
+import com.xyz.upload.demo.service.dto.UploadJobDTO;
+import com.xyz.upload.demo.service.dto.UploadSummaryDTO;
 import com.xyz.upload.demo.web.rest.errors.BadRequestAlertException;
+import com.xyz.upload.demo.web.rest.util.PaginationUtil;
+import com.xyz.upload.demo.web.rest.util.UploadEventWriter;
+
+import io.github.jhipster.web.util.ResponseUtil;
 
 /**
  * UploadResource controller
@@ -39,83 +55,324 @@ import com.xyz.upload.demo.web.rest.errors.BadRequestAlertException;
 @RequestMapping("/api/upload")
 public class UploadResource {
 
+	private static final String NDJSON_VALUE = "application/x-ndjson";
+
 	private final Logger log = LoggerFactory.getLogger(UploadResource.class);
 
-	private final String[] HEADERS = { "First Name", "Last Name", "Age" };
+	private final UploadContentService uploadContentService;
+
+	private final UploadJobService uploadJobService;
+
+	private final UploadJobEventService uploadJobEventService;
+
+	private final UploadAdmissionService uploadAdmissionService;
+
+	private final ErrorReportService errorReportService;
 
-	@Autowired
-	private StudentService studentService;
+	private final ObjectMapper objectMapper;
 
-	public UploadResource(StudentService studentService) {
+	public UploadResource(UploadContentService uploadContentService, UploadJobService uploadJobService,
+			UploadJobEventService uploadJobEventService, UploadAdmissionService uploadAdmissionService,
+			ErrorReportService errorReportService, ObjectMapper objectMapper) {
 		super();
-		this.studentService = studentService;
+		this.uploadContentService = uploadContentService;
+		this.uploadJobService = uploadJobService;
+		this.uploadJobEventService = uploadJobEventService;
+		this.uploadAdmissionService = uploadAdmissionService;
+		this.errorReportService = errorReportService;
+		this.objectMapper = objectMapper;
 	}
 
 	/**
-	 * POST uploadFile
+	 * POST uploadFile : upload a CSV of students as a multipart file.
+	 * <p>
+	 * The file can be a plain .csv, a compressed .csv.gz or .csv.zst, or a .zip bundle of CSVs whose entries are
+	 * ingested in parallel and summarized separately. Compressed files are decoded while they are ingested.
+	 * <p>
+	 * A content which was already ingested is answered with the summary of its first ingestion.
+	 *
+	 * @param file the CSV file, compressed or not
+	 * @param parallel whether the file is ingested in parallel segments
+	 * @param parser the CSV parser to use, instead of the configured one
+	 * @param mapped whether the spooled file is read through memory-mapped windows rather than a stream
+	 * @param writer how valid rows are written, with JDBC batches or with the native bulk load of the database
+	 * @param mode whether valid rows are inserted, or merged with the students having the same natural key
+	 * @param dedup whether the rows repeating a previous row of the file are rejected as duplicates
+	 * @param dryRun whether the file is only parsed and validated, in parallel and without using the database
+	 * @param uploadId the client id making the upload resumable, or null
+	 * @param force whether the content is ingested even if it was already ingested
+	 * @return the summary of the upload, or status 429 (Too Many Requests) if too many uploads are in progress
+	 * @throws IOException if the file cannot be read
 	 */
 	@PostMapping("/upload-file")
-	public Map<String, Object> uploadFile(@RequestParam("file") MultipartFile file) throws URISyntaxException {
+	@Timed
+	public UploadSummaryDTO uploadFile(@RequestParam("file") MultipartFile file,
+			@RequestParam(name = "parallel", defaultValue = "false") boolean parallel,
+			@RequestParam(name = "parser", required = false) UploadOptions.Parser parser,
+			@RequestParam(name = "mapped", defaultValue = "false") boolean mapped,
+			@RequestParam(name = "writer", defaultValue = "BATCH") UploadOptions.Writer writer,
+			@RequestParam(name = "mode", defaultValue = "INSERT") UploadOptions.Mode mode,
+			@RequestParam(name = "dedup", defaultValue = "false") boolean dedup,
+			@RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun,
+			@RequestParam(name = "uploadId", required = false) String uploadId,
+			@RequestParam(name = "force", defaultValue = "false") boolean force) throws IOException {
+		log.debug("REST request to upload file : {}, parallel: {}", file.getOriginalFilename(), parallel);
+		UploadOptions options = new UploadOptions().compression(validateCsvFile(file)).parallel(parallel).parser(parser)
+				.mapped(mapped).writer(writer).mode(mode).dedup(dedup).dryRun(dryRun).uploadId(uploadId).force(force);
 
-		log.info("INSIDE::UPLOAD");
-		
-		String extension = FilenameUtils.getExtension(file.getOriginalFilename());
-		if (!extension.equalsIgnoreCase("csv"))
-			throw new BadRequestAlertException("Unsupported file extension. File is not a CSV.", file.getName(), "");
+		try (UploadAdmissionService.Permit permit = uploadAdmissionService.admit();
+				InputStream in = file.getInputStream()) {
+			return ingestSpooled(in, options);
+		}
+	}
 
-		if (file.isEmpty())
-			throw new BadRequestAlertException("File is NULL or Empty.", file.getName(), "");
+	/**
+	 * POST uploadFile : upload a CSV of students as a multipart file, streaming the events of the upload.
+	 * <p>
+	 * Selected with the events=true parameter, this variant answers with JSON lines while the
+	 * file is ingested: a PROGRESS event per committed chunk, a REJECTED event per rejected row, and finally a
+	 * SUMMARY event, or an ERROR event if the upload failed. Rejected rows are reported in file order, so the
+	 * file is always ingested sequentially, and the rows of the entries of a zip bundle are only reported in
+	 * the summary.
+	 *
+	 * @param file the CSV file, compressed or not
+	 * @param parser the CSV parser to use, instead of the configured one
+	 * @param mapped whether the spooled file is read through memory-mapped windows rather than a stream
+	 * @param writer how valid rows are written, with JDBC batches or with the native bulk load of the database
+	 * @param mode whether valid rows are inserted, or merged with the students having the same natural key
+	 * @param dedup whether the rows repeating a previous row of the file are rejected as duplicates
+	 * @param uploadId the client id making the upload resumable, or null
+	 * @param force whether the content is ingested even if it was already ingested
+	 * @return the ResponseEntity with status 200 (OK) and with body the stream of events,
+	 * or with status 429 (Too Many Requests) if too many uploads are in progress
+	 * @throws IOException if the file cannot be spooled
+	 */
+	@PostMapping(path = "/upload-file", params = "events=true", produces = NDJSON_VALUE)
+	@Timed
+	public ResponseEntity<StreamingResponseBody> uploadFileWithEvents(@RequestParam("file") MultipartFile file,
+			@RequestParam(name = "parser", required = false) UploadOptions.Parser parser,
+			@RequestParam(name = "mapped", defaultValue = "false") boolean mapped,
+			@RequestParam(name = "writer", defaultValue = "BATCH") UploadOptions.Writer writer,
+			@RequestParam(name = "mode", defaultValue = "INSERT") UploadOptions.Mode mode,
+			@RequestParam(name = "dedup", defaultValue = "false") boolean dedup,
+			@RequestParam(name = "uploadId", required = false) String uploadId,
+			@RequestParam(name = "force", defaultValue = "false") boolean force) throws IOException {
+		log.debug("REST request to upload file with events : {}", file.getOriginalFilename());
+		UploadOptions options = new UploadOptions().compression(validateCsvFile(file)).parser(parser)
+				.mapped(mapped).writer(writer).mode(mode).dedup(dedup).uploadId(uploadId).force(force);
 
-		List<StudentDTO> validRecords = new ArrayList<>();
-		List<String> badRecords = new ArrayList<>();
+		// the permit and the spooled file are released by the stream, once the upload is ingested
+		UploadAdmissionService.Permit permit = uploadAdmissionService.admit();
+		Path spooled = null;
+		try (InputStream in = file.getInputStream()) {
+			spooled = Files.createTempFile("upload-", ".csv");
+			String contentHash = uploadContentService.spool(in, spooled);
+			StreamingResponseBody events = streamEvents(spooled, contentHash, options, permit);
+			return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(events);
+		} catch (IOException | RuntimeException e) {
+			permit.close();
+			if (spooled != null)
+				Files.deleteIfExists(spooled);
+			throw e;
+		}
+	}
 
-		ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-		Validator validator = factory.getValidator();
+	/**
+	 * POST uploadStream : upload a CSV of students as the raw request body.
+	 * <p>
+	 * The body is spooled to disk while its hash is computed, without being buffered by a multipart resolver.
+	 * A content which was already ingested is answered with the summary of its first ingestion.
+	 * A body with a gzip or zstd Content-Encoding is decoded while it is ingested.
+	 *
+	 * @param body the CSV content
+	 * @param contentEncoding the Content-Encoding of the body, or null
+	 * @param parser the CSV parser to use, instead of the configured one
+	 * @param mapped whether the spooled file is read through memory-mapped windows rather than a stream
+	 * @param writer how valid rows are written, with JDBC batches or with the native bulk load of the database
+	 * @param mode whether valid rows are inserted, or merged with the students having the same natural key
+	 * @param dedup whether the rows repeating a previous row of the file are rejected as duplicates
+	 * @param dryRun whether the file is only parsed and validated, in parallel and without using the database
+	 * @param uploadId the client id making the upload resumable, or null
+	 * @param force whether the content is ingested even if it was already ingested
+	 * @return the summary of the upload, or status 429 (Too Many Requests) if too many uploads are in progress
+	 * @throws IOException if the body cannot be read
+	 */
+	@PostMapping(path = "/stream", consumes = { "text/csv", "text/plain", "application/octet-stream" })
+	@Timed
+	public UploadSummaryDTO uploadStream(InputStream body,
+			@RequestHeader(name = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+			@RequestParam(name = "parser", required = false) UploadOptions.Parser parser,
+			@RequestParam(name = "mapped", defaultValue = "false") boolean mapped,
+			@RequestParam(name = "writer", defaultValue = "BATCH") UploadOptions.Writer writer,
+			@RequestParam(name = "mode", defaultValue = "INSERT") UploadOptions.Mode mode,
+			@RequestParam(name = "dedup", defaultValue = "false") boolean dedup,
+			@RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun,
+			@RequestParam(name = "uploadId", required = false) String uploadId,
+			@RequestParam(name = "force", defaultValue = "false") boolean force) throws IOException {
+		log.debug("REST request to upload a streamed CSV, encoding: {}", contentEncoding);
+		UploadOptions.Compression compression = UploadOptions.Compression.fromContentEncoding(contentEncoding);
+		if (compression == null)
+			throw new BadRequestAlertException("Unsupported Content-Encoding: " + contentEncoding, "upload",
+					"unsupportedencoding");
 
-		Iterable<CSVRecord> records;
-		try {
-			records = CSVFormat.DEFAULT.withHeader(HEADERS).withFirstRecordAsHeader().withIgnoreEmptyLines(true)
-					.parse(new InputStreamReader(file.getInputStream()));
-
-			for (CSVRecord csvRecord : records) {
-
-				String firstName = StringUtils.trimToEmpty(csvRecord.get(0));
-				String lastName = StringUtils.trimToEmpty(csvRecord.get(1));
-				Integer age = NumberUtils.toInt(csvRecord.get(2), 0);
-
-				StudentDTO studentObj = new StudentDTO(firstName, lastName, age);
-				Set<ConstraintViolation<StudentDTO>> violations = validator.validate(studentObj);
-
-				if (violations.isEmpty()) {
-					studentObj = studentService.save(studentObj);
-					validRecords.add(studentObj);
-				} else {
-					// Collecting Bad Records with validation error messages
-					String errorMsg = "";
-					for (ConstraintViolation<StudentDTO> violation : violations) {
-						if (errorMsg != "")
-							errorMsg = errorMsg + "  &  " + violation.getMessage();
-						else
-							errorMsg = errorMsg + violation.getMessage();
-					}
-					badRecords.add(csvRecord + "   ::   " + errorMsg);
+		try (UploadAdmissionService.Permit permit = uploadAdmissionService.admit()) {
+			return ingestSpooled(body, new UploadOptions().compression(compression).parser(parser).mapped(mapped)
+					.writer(writer).mode(mode).dedup(dedup).dryRun(dryRun).uploadId(uploadId).force(force));
+		}
+	}
+
+	/**
+	 * POST createJob : upload a CSV of students to be ingested asynchronously.
+	 *
+	 * @param file the CSV file, compressed or not
+	 * @param parallel whether the file is ingested in parallel segments
+	 * @param parser the CSV parser to use, instead of the configured one
+	 * @param mapped whether the spooled file is read through memory-mapped windows rather than a stream
+	 * @param writer how valid rows are written, with JDBC batches or with the native bulk load of the database
+	 * @param mode whether valid rows are inserted, or merged with the students having the same natural key
+	 * @param dedup whether the rows repeating a previous row of the file are rejected as duplicates
+	 * @param dryRun whether the file is only parsed and validated, in parallel and without using the database
+	 * @param distributed whether the chunks of the file are queued for the ingestion by any node of the cluster
+	 * @param uploadId the client id making the upload resumable, or null
+	 * @param force whether the content is ingested even if it was already ingested
+	 * @return the ResponseEntity with status 202 (Accepted) and with body the queued job,
+	 * or with status 429 (Too Many Requests) if the upload job queue is full
+	 * @throws IOException if the file cannot be spooled
+	 * @throws URISyntaxException if the Location URI syntax is incorrect
+	 */
+	@PostMapping("/jobs")
+	@Timed
+	public ResponseEntity<UploadJobDTO> createJob(@RequestParam("file") MultipartFile file,
+			@RequestParam(name = "parallel", defaultValue = "false") boolean parallel,
+			@RequestParam(name = "parser", required = false) UploadOptions.Parser parser,
+			@RequestParam(name = "mapped", defaultValue = "false") boolean mapped,
+			@RequestParam(name = "writer", defaultValue = "BATCH") UploadOptions.Writer writer,
+			@RequestParam(name = "mode", defaultValue = "INSERT") UploadOptions.Mode mode,
+			@RequestParam(name = "dedup", defaultValue = "false") boolean dedup,
+			@RequestParam(name = "dryRun", defaultValue = "false") boolean dryRun,
+			@RequestParam(name = "distributed", defaultValue = "false") boolean distributed,
+			@RequestParam(name = "uploadId", required = false) String uploadId,
+			@RequestParam(name = "force", defaultValue = "false") boolean force)
+			throws IOException, URISyntaxException {
+		log.debug("REST request to create an upload job for file : {}", file.getOriginalFilename());
+		UploadOptions options = new UploadOptions().compression(validateCsvFile(file)).parallel(parallel).parser(parser)
+				.mapped(mapped).writer(writer).mode(mode).dedup(dedup).dryRun(dryRun).distributed(distributed)
+				.uploadId(uploadId).force(force);
+
+		UploadJobDTO job;
+		try (InputStream in = file.getInputStream()) {
+			job = uploadJobService.submit(in, file.getOriginalFilename(), options);
+		}
+		return ResponseEntity.accepted().location(new URI("/api/upload/jobs/" + job.getId())).body(job);
+	}
+
+	/**
+	 * GET getErrors : get a page of the rows rejected by an upload.
+	 *
+	 * @param id the id of the error report, or of the upload job
+	 * @param pageable the pagination information
+	 * @return the ResponseEntity with status 200 (OK) and the list of rejected rows in body,
+	 * or with status 404 (Not Found) if the report is unknown or was evicted
+	 */
+	@GetMapping("/{id}/errors")
+	@Timed
+	public ResponseEntity<List<RejectedRowDTO>> getErrors(@PathVariable String id, Pageable pageable) {
+		log.debug("REST request to get the errors of upload : {}", id);
+		Optional<Page<RejectedRowDTO>> page = errorReportService.findRows(id, pageable);
+		if (!page.isPresent()) {
+			return ResponseEntity.notFound().build();
+		}
+		HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page.get(), "/api/upload/" + id + "/errors");
+		return ResponseEntity.ok().headers(headers).body(page.get().getContent());
+	}
+
+	/**
+	 * GET getJob : get the status of an upload job.
+	 *
+	 * @param id the id of the job
+	 * @return the ResponseEntity with status 200 (OK) and with body the job, or with status 404 (Not Found)
+	 */
+	@GetMapping("/jobs/{id}")
+	@Timed
+	public ResponseEntity<UploadJobDTO> getJob(@PathVariable String id) {
+		log.debug("REST request to get upload job : {}", id);
+		return ResponseUtil.wrapOrNotFound(uploadJobService.findOne(id));
+	}
+
+	/**
+	 * GET getJobEvents : stream the progress of an upload job as Server-Sent Events.
+	 * <p>
+	 * A PROGRESS event with the parsed, inserted and rejected rows, the rows per second and the estimated
+	 * seconds left is sent at the configured interval, until a last SUMMARY or ERROR event ends the stream.
+	 *
+	 * @param id the id of the job
+	 * @return the ResponseEntity with status 200 (OK) and the stream of events, or with status 404 (Not Found)
+	 */
+	@GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@Timed
+	public ResponseEntity<SseEmitter> getJobEvents(@PathVariable String id) {
+		log.debug("REST request to stream the events of upload job : {}", id);
+		return ResponseUtil.wrapOrNotFound(uploadJobEventService.subscribe(id));
+	}
+
+	/**
+	 * DELETE cancelJob : cancel an upload job.
+	 *
+	 * @param id the id of the job
+	 * @return the ResponseEntity with status 200 (OK) and with body the job, or with status 404 (Not Found)
+	 */
+	@DeleteMapping("/jobs/{id}")
+	@Timed
+	public ResponseEntity<UploadJobDTO> cancelJob(@PathVariable String id) {
+		log.debug("REST request to cancel upload job : {}", id);
+		return ResponseUtil.wrapOrNotFound(uploadJobService.cancel(id));
+	}
+
+	private StreamingResponseBody streamEvents(Path spooled, String contentHash, UploadOptions options,
+			UploadAdmissionService.Permit permit) {
+		return out -> {
+			try {
+				UploadEventWriter writer = new UploadEventWriter(objectMapper, out);
+				try {
+					UploadSummaryDTO summary = uploadContentService.ingest(spooled, contentHash, options,
+							new UploadProgress().listener(writer));
+					writer.write(UploadEventDTO.summary(summary));
+				} catch (UncheckedIOException e) {
+					// the client went away, there is nobody left to report to
+					throw e.getCause();
+				} catch (RuntimeException e) {
+					log.warn("Upload with events failed: {}", e.getMessage());
+					writer.write(UploadEventDTO.error(e.getMessage()));
 				}
+				writer.flush();
+			} finally {
+				permit.close();
+				Files.deleteIfExists(spooled);
 			}
-		} catch (IOException e) {
-			log.error("Upload File Exception :: ", e);
-			e.printStackTrace();
-		} catch (Exception e) {
-			log.error("Upload File Exception :: ", e);
-			e.printStackTrace();
+		};
+	}
+
+	private UploadSummaryDTO ingestSpooled(InputStream csv, UploadOptions options) throws IOException {
+		Path spooled = Files.createTempFile("upload-", ".csv");
+		try {
+			String contentHash = uploadContentService.spool(csv, spooled);
+			return uploadContentService.ingest(spooled, contentHash, options, new UploadProgress());
+		} finally {
+			Files.deleteIfExists(spooled);
 		}
+	}
 
-		log.info("INSIDE::UPLOAD::AFTER PARSING");
+	private UploadOptions.Compression validateCsvFile(MultipartFile file) {
+		UploadOptions.Compression compression = UploadOptions.Compression.fromFileName(file.getOriginalFilename());
+		if (compression == null)
+			throw new BadRequestAlertException(
+					"Unsupported file extension. File is not a CSV, a compressed CSV or a zip of CSVs.",
+					file.getName(), "");
 
-		Map<String, Object> responseMap = new HashMap<>();
-		responseMap.put("Successfully Inserted", validRecords);
-		responseMap.put("Bad Records", badRecords);
+		if (file.isEmpty())
+			throw new BadRequestAlertException("File is NULL or Empty.", file.getName(), "");
 
-		return responseMap;
+		return compression;
 	}
 
 }
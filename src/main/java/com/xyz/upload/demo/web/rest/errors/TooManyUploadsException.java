@@ -0,0 +1,23 @@
+package com.xyz.upload.demo.web.rest.errors;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+/**
+ * Exception returning a Too Many Requests code, when the upload pipeline is saturated.
+ */
+public class TooManyUploadsException extends AbstractThrowableProblem {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public TooManyUploadsException(long retryAfterSeconds) {
+        super(ErrorConstants.DEFAULT_TYPE, "Too many uploads in progress, retry later", Status.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,6 +1,10 @@
 package com.xyz.upload.demo.web.rest.util;
 
+import java.time.Instant;
+
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -13,6 +17,23 @@ import org.springframework.web.util.UriComponentsBuilder;
  */
 public final class PaginationUtil {
 
+    /**
+     * The header of the time an approximate total count was counted.
+     */
+    public static final String TOTAL_COUNT_DATE_HEADER = "X-Total-Count-Date";
+
+    /**
+     * How the total count of a page is returned.
+     */
+    public enum TotalCount {
+        /** The matching entities are counted for every page. */
+        EXACT,
+        /** The count may have been cached for a while, and is returned with the time it was counted. */
+        APPROXIMATE,
+        /** There is no total count nor last link, the next link only tells whether there is a next page. */
+        NONE
+    }
+
     private PaginationUtil() {
     }
 
@@ -39,6 +60,76 @@ public final class PaginationUtil {
         return headers;
     }
 
+    /**
+     * Generate the headers of a slice, read without counting the entities: there is no total count nor last link.
+     *
+     * @param slice the slice
+     * @param baseUrl the URL of the resource
+     * @return the headers, with a next link if there is a next slice
+     */
+    public static <T> HttpHeaders generateSliceHttpHeaders(Slice<T> slice, String baseUrl) {
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + generateUri(baseUrl, slice.getNumber() + 1, slice.getSize()) + ">; rel=\"next\",";
+        }
+        if (slice.getNumber() > 0) {
+            link += "<" + generateUri(baseUrl, slice.getNumber() - 1, slice.getSize()) + ">; rel=\"prev\",";
+        }
+        link += "<" + generateUri(baseUrl, 0, slice.getSize()) + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * Generate the headers of a slice with an approximate total count, and the time it was counted.
+     * <p>
+     * The count is corrected by what the slice tells: it is at least the entities up to the slice, plus one if
+     * there is a next slice, and it is exact if the slice is the last one.
+     *
+     * @param slice the slice
+     * @param count the approximate count of the entities
+     * @param countedAt when the entities were counted
+     * @param baseUrl the URL of the resource
+     * @return the headers, with the approximate total count and links
+     */
+    public static <T> HttpHeaders generateApproximatePaginationHttpHeaders(Slice<T> slice, long count,
+            Instant countedAt, String baseUrl) {
+        long offset = (long) slice.getNumber() * slice.getSize();
+        long seen = offset + slice.getNumberOfElements();
+        long total;
+        if (slice.hasNext()) {
+            total = Math.max(count, seen + 1);
+        } else if (slice.hasContent() || slice.getNumber() == 0) {
+            total = seen;
+        } else {
+            total = Math.min(count, offset);
+        }
+        Page<T> page = new PageImpl<>(slice.getContent(), slice.getPageable(), total);
+        HttpHeaders headers = generatePaginationHttpHeaders(page, baseUrl);
+        headers.add(TOTAL_COUNT_DATE_HEADER, countedAt.toString());
+        return headers;
+    }
+
+    /**
+     * Generate the headers of a slice read after a cursor: the next link carries the cursor of the slice instead of a
+     * page number, and there is neither a total count nor a last link, as the rows are never counted.
+     *
+     * @param nextCursor the cursor of the next slice, or null if the slice is the last one
+     * @param size the size of the slice
+     * @param baseUrl the URL of the resource
+     * @return the headers, with a next link if there is a next slice
+     */
+    public static HttpHeaders generateKeysetPaginationHttpHeaders(String nextCursor, int size, String baseUrl) {
+        HttpHeaders headers = new HttpHeaders();
+        if (nextCursor != null) {
+            String uri = UriComponentsBuilder.fromUriString(baseUrl).queryParam("after", nextCursor)
+                .queryParam("size", size).toUriString();
+            headers.add(HttpHeaders.LINK, "<" + uri + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+
     private static String generateUri(String baseUrl, int page, int size) {
         return UriComponentsBuilder.fromUriString(baseUrl).queryParam("page", page).queryParam("size", size).toUriString();
     }
@@ -0,0 +1,59 @@
+package com.xyz.upload.demo.web.rest.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xyz.upload.demo.service.UploadProgress;
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+import com.xyz.upload.demo.service.dto.UploadEventDTO;
+
+/**
+ * Writer of upload events as JSON lines, listening to the progress of the upload.
+ * <p>
+ * Rejected rows are buffered and flushed with the progress of the next committed chunk, so the client
+ * receives them while the upload is still being ingested.
+ */
+public class UploadEventWriter implements UploadProgress.Listener {
+
+    private static final int LINE_FEED = '\n';
+
+    private final ObjectMapper objectMapper;
+
+    private final OutputStream out;
+
+    public UploadEventWriter(ObjectMapper objectMapper, OutputStream out) {
+        this.objectMapper = objectMapper;
+        this.out = out;
+    }
+
+    @Override
+    public void chunkCommitted(UploadProgress progress) {
+        try {
+            write(UploadEventDTO.progress(progress.getParsedRows(), progress.getInsertedRows(),
+                progress.getRejectedRows()));
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void rowRejected(RejectedRowDTO rejectedRow) {
+        try {
+            write(UploadEventDTO.rejected(rejectedRow));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void write(UploadEventDTO event) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(event));
+        out.write(LINE_FEED);
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+}
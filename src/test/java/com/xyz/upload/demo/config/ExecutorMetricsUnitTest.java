@@ -0,0 +1,93 @@
+package com.xyz.upload.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Test class for the ExecutorMetrics.
+ *
+ * @see ExecutorMetrics
+ */
+public class ExecutorMetricsUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private ThreadPoolExecutor pool;
+
+    private ExecutorMetrics executorMetrics;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        executorMetrics = new ExecutorMetrics("test", () -> pool);
+        pool.setRejectedExecutionHandler(executorMetrics.counting(new ThreadPoolExecutor.AbortPolicy()));
+        metricRegistry.register("executor.test", executorMetrics);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testSaturationIsExported() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        pool.execute(executorMetrics.decorate(() -> {
+            started.countDown();
+            await(release);
+        }));
+        pool.execute(executorMetrics.decorate(() -> { }));
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThat(gauge("executor.test.active").getValue()).isEqualTo(1);
+        assertThat(gauge("executor.test.queued").getValue()).isEqualTo(1);
+        assertThatThrownBy(() -> pool.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+        assertThat(metricRegistry.meter("executor.test.rejected").getCount()).isEqualTo(1);
+
+        release.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertThat(gauge("executor.test.completed").getValue()).isEqualTo(2L);
+        assertThat(metricRegistry.timer("executor.test.wait").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.timer("executor.test.duration").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testUndecoratedTasksAreTimedBetweenStartAndFinish() {
+        executorMetrics.started();
+        executorMetrics.finished();
+        // a finish without a start is ignored
+        executorMetrics.finished();
+
+        assertThat(metricRegistry.timer("executor.test.duration").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.timer("executor.test.wait").getCount()).isEqualTo(0);
+    }
+
+    private Gauge<?> gauge(String name) {
+        return metricRegistry.getGauges().get(name);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
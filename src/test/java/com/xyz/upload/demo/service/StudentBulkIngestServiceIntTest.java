@@ -0,0 +1,151 @@
+package com.xyz.upload.demo.service;
+
+import com.xyz.upload.demo.FileUploadDemoApp;
+import com.xyz.upload.demo.domain.Student;
+import com.xyz.upload.demo.repository.StudentRepository;
+import com.xyz.upload.demo.service.dto.StudentDTO;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Test class for the StudentBulkIngestService.
+ *
+ * @see StudentBulkIngestService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = FileUploadDemoApp.class)
+@Transactional
+public class StudentBulkIngestServiceIntTest {
+
+    @Autowired
+    private StudentBulkIngestService studentBulkIngestService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Test
+    public void assertThatAllRowsAreInsertedAcrossChunks() {
+        int databaseSizeBefore = studentRepository.findAll().size();
+        List<StudentDTO> students = Arrays.asList(
+            new StudentDTO("AAAAAAAAAA", "AAAAAAAAAA", 1),
+            new StudentDTO("BBBBBBBBBB", null, 2),
+            new StudentDTO("CCCCCCCCCC", "CCCCCCCCCC", 3));
+
+        long inserted = studentBulkIngestService.saveAll(students.iterator(), 2);
+
+        assertThat(inserted).isEqualTo(3);
+        List<Student> studentList = studentRepository.findAll();
+        assertThat(studentList).hasSize(databaseSizeBefore + 3);
+        assertThat(studentList).extracting(Student::getFirstName).contains("AAAAAAAAAA", "BBBBBBBBBB", "CCCCCCCCCC");
+    }
+
+    @Test
+    public void assertThatEmptyInputInsertsNothing() {
+        long inserted = studentBulkIngestService.saveAll(Collections.<StudentDTO>emptyIterator(), 2);
+        assertThat(inserted).isZero();
+    }
+
+    @Test
+    public void assertThatLoadedRowsKeepQuotesSeparatorsAndNulls() {
+        int databaseSizeBefore = studentRepository.findAll().size();
+        List<StudentDTO> students = Arrays.asList(
+            new StudentDTO("DDD, \"D\"", "D'DDD\\", 4),
+            new StudentDTO("EEEEEEEEEE", null, 5));
+
+        int inserted = studentBulkIngestService.loadChunk(students);
+
+        assertThat(inserted).isEqualTo(2);
+        List<Student> studentList = studentRepository.findAll();
+        assertThat(studentList).hasSize(databaseSizeBefore + 2);
+        assertThat(studentList).extracting(Student::getFirstName, Student::getLastName, Student::getAge)
+            .contains(tuple("DDD, \"D\"", "D'DDD\\", 4), tuple("EEEEEEEEEE", null, 5));
+    }
+
+    @Test
+    public void assertThatLoadedIdsDoNotCollideWithSavedIds() {
+        int databaseSizeBefore = studentRepository.findAll().size();
+
+        studentBulkIngestService.loadChunk(Collections.singletonList(new StudentDTO("FFFFFFFFFF", "FFFFFFFFFF", 6)));
+        studentBulkIngestService.saveChunk(Collections.singletonList(new StudentDTO("GGGGGGGGGG", "GGGGGGGGGG", 7)));
+
+        assertThat(studentRepository.findAll()).hasSize(databaseSizeBefore + 2);
+    }
+
+    @Test
+    public void assertThatMergedRowsUpdateMatchingStudentsAndInsertTheOthers() {
+        studentBulkIngestService.saveChunk(Collections.singletonList(new StudentDTO("HHHHHHHHHH", "HHHHHHHHHH", 8)));
+        int databaseSizeBefore = studentRepository.findAll().size();
+        List<StudentDTO> students = Arrays.asList(
+            new StudentDTO("HHHHHHHHHH", "HHHHHHHHHH", 18),
+            new StudentDTO("IIIIIIIIII", "IIIIIIIIII", 9),
+            new StudentDTO("IIIIIIIIII", "IIIIIIIIII", 19));
+
+        StudentBulkIngestService.MergeResult result = studentBulkIngestService.mergeChunk(students,
+            Arrays.asList("first_name", "last_name"));
+
+        assertThat(result.getInsertedRows()).isEqualTo(1);
+        assertThat(result.getUpdatedRows()).isEqualTo(1);
+        List<Student> studentList = studentRepository.findAll();
+        assertThat(studentList).hasSize(databaseSizeBefore + 1);
+        assertThat(studentList).extracting(Student::getFirstName, Student::getAge)
+            .contains(tuple("HHHHHHHHHH", 18), tuple("IIIIIIIIII", 19))
+            .doesNotContain(tuple("HHHHHHHHHH", 8), tuple("IIIIIIIIII", 9));
+    }
+
+    @Test
+    public void assertThatMergingOnAllColumnsOnlyInsertsNewRows() {
+        studentBulkIngestService.saveChunk(Collections.singletonList(new StudentDTO("JJJJJJJJJJ", "JJJJJJJJJJ", 10)));
+        int databaseSizeBefore = studentRepository.findAll().size();
+        List<StudentDTO> students = Arrays.asList(
+            new StudentDTO("JJJJJJJJJJ", "JJJJJJJJJJ", 10),
+            new StudentDTO("JJJJJJJJJJ", "JJJJJJJJJJ", 11));
+
+        StudentBulkIngestService.MergeResult result = studentBulkIngestService.mergeChunk(students,
+            Arrays.asList("first_name", "last_name", "age"));
+
+        assertThat(result.getInsertedRows()).isEqualTo(1);
+        assertThat(result.getUpdatedRows()).isZero();
+        assertThat(studentRepository.findAll()).hasSize(databaseSizeBefore + 1);
+    }
+
+    @Test
+    public void assertThatNullKeyColumnsMatchNull() {
+        studentBulkIngestService.saveChunk(Collections.singletonList(new StudentDTO("LLLLLLLLLL", null, 13)));
+        int databaseSizeBefore = studentRepository.findAll().size();
+
+        List<StudentDTO> students = Collections.singletonList(new StudentDTO("LLLLLLLLLL", null, 14));
+
+        StudentBulkIngestService.MergeResult result = studentBulkIngestService.mergeChunk(students,
+            Arrays.asList("first_name", "last_name"));
+
+        assertThat(result.getInsertedRows()).isZero();
+        assertThat(result.getUpdatedRows()).isEqualTo(1);
+        assertThat(studentRepository.findAll()).hasSize(databaseSizeBefore)
+            .extracting(Student::getFirstName, Student::getAge)
+            .contains(tuple("LLLLLLLLLL", 14))
+            .doesNotContain(tuple("LLLLLLLLLL", 13));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertThatMergeKeyMustBeStudentColumns() {
+        studentBulkIngestService.mergeChunk(Collections.singletonList(new StudentDTO("KKKKKKKKKK", "KKKKKKKKKK", 12)),
+            Collections.singletonList("id"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void assertThatBatchSizeMustBePositive() {
+        studentBulkIngestService.saveAll(Collections.<StudentDTO>emptyIterator(), 0);
+    }
+}
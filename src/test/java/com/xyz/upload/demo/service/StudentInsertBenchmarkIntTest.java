@@ -0,0 +1,146 @@
+package com.xyz.upload.demo.service;
+
+import com.xyz.upload.demo.FileUploadDemoApp;
+import com.xyz.upload.demo.domain.Student;
+import com.xyz.upload.demo.service.dto.StudentDTO;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Insert throughput benchmark for the Student table, comparing the ways rows can be inserted.
+ * <p>
+ * It is skipped unless run with -Dbenchmark=true, and -Dbenchmark.rows sets the number of rows per run.
+ * The first run is the IDENTITY baseline: with IDENTITY ids, Hibernate has to execute every insert on its own and
+ * read back its generated key, which is done here with plain JDBC on the auto-increment id column. Comparing it
+ * with the batched JPA run shows the effect of the pooled id generator on the JPA path.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = FileUploadDemoApp.class)
+public class StudentInsertBenchmarkIntTest {
+
+    private static final String FIRST_NAME = "Benchmark";
+
+    private static final String IDENTITY_INSERT_SQL =
+        "insert into student (first_name, last_name, age) values (?, ?, ?)";
+
+    private final Logger log = LoggerFactory.getLogger(StudentInsertBenchmarkIntTest.class);
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private StudentBulkIngestService studentBulkIngestService;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int rows;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark"));
+        rows = Integer.getInteger("benchmark.rows", 20000);
+    }
+
+    @After
+    public void cleanup() {
+        jdbcTemplate.update("delete from student where first_name = ?", FIRST_NAME);
+    }
+
+    @Test
+    public void benchmarkInserts() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        report("JDBC insert per row, IDENTITY ids", measure(() -> {
+            List<StudentDTO> students = students();
+            for (int from = 0; from < students.size(); from += 1000) {
+                List<StudentDTO> chunk = students.subList(from, Math.min(from + 1000, students.size()));
+                transactionTemplate.execute(status -> {
+                    for (StudentDTO student : chunk) {
+                        KeyHolder keyHolder = new GeneratedKeyHolder();
+                        jdbcTemplate.update(connection -> {
+                            PreparedStatement statement = connection.prepareStatement(IDENTITY_INSERT_SQL,
+                                new String[] { "id" });
+                            statement.setString(1, student.getFirstName());
+                            statement.setString(2, student.getLastName());
+                            statement.setInt(3, student.getAge());
+                            return statement;
+                        }, keyHolder);
+                    }
+                    return null;
+                });
+            }
+        }));
+        // the identity ids are not reserved in the id generator table, which could hand them out again
+        cleanup();
+
+        report("StudentService.save per row", measure(() -> {
+            for (StudentDTO student : students()) {
+                studentService.save(student);
+            }
+        }));
+
+        report("JPA persist, batched", measure(() -> {
+            List<StudentDTO> students = students();
+            for (int from = 0; from < students.size(); from += 1000) {
+                List<StudentDTO> chunk = students.subList(from, Math.min(from + 1000, students.size()));
+                transactionTemplate.execute(status -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        StudentDTO student = chunk.get(i);
+                        em.persist(new Student().firstName(student.getFirstName()).lastName(student.getLastName())
+                            .age(student.getAge()));
+                        if (i % 50 == 49) {
+                            em.flush();
+                            em.clear();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }));
+
+        report("StudentBulkIngestService", measure(() -> studentBulkIngestService.saveAll(students().iterator(), 1000)));
+    }
+
+    private List<StudentDTO> students() {
+        List<StudentDTO> students = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            students.add(new StudentDTO(FIRST_NAME, "Student" + i, i % 100));
+        }
+        return students;
+    }
+
+    private long measure(Runnable run) {
+        long start = System.nanoTime();
+        run.run();
+        return System.nanoTime() - start;
+    }
+
+    private void report(String name, long nanos) {
+        log.info("{}: {} rows in {} ms, {} rows/s", name, rows, nanos / 1000000, rows * 1000000000L / Math.max(nanos, 1));
+    }
+}
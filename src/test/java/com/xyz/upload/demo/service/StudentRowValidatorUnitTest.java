@@ -0,0 +1,47 @@
+package com.xyz.upload.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.validation.Validation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.xyz.upload.demo.service.dto.StudentDTO;
+
+/**
+ * Test class for the StudentRowValidator.
+ *
+ * @see StudentRowValidator
+ */
+public class StudentRowValidatorUnitTest {
+
+    private StudentRowValidator studentRowValidator;
+
+    @Before
+    public void setup() {
+        studentRowValidator = new StudentRowValidator(Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Test
+    public void testCompiledChecksMatchTheConstraints() {
+        assertThat(studentRowValidator.isValid(new StudentDTO("Tia", "Gulati", 20))).isTrue();
+        assertThat(studentRowValidator.isValid(new StudentDTO("Tia", null, 20))).isTrue();
+        assertThat(studentRowValidator.isValid(new StudentDTO("", "Gulati", 20))).isFalse();
+        assertThat(studentRowValidator.isValid(new StudentDTO(null, "Gulati", 20))).isFalse();
+        assertThat(studentRowValidator.isValid(new StudentDTO("Tia", "Gulati", null))).isFalse();
+    }
+
+    @Test
+    public void testDescribeViolationsUsesTheValidatorMessages() {
+        String message = studentRowValidator.describeViolations(new StudentDTO("", "Gulati", null));
+
+        assertThat(message).contains("firstName").contains("age").contains("  &  ");
+    }
+
+    @Test
+    public void testViolationsAreDescribedByRule() {
+        assertThat(studentRowValidator.describeViolationsByRule(new StudentDTO("", "Gulati", null)))
+            .containsOnlyKeys("firstName.Size", "age.NotNull");
+    }
+}
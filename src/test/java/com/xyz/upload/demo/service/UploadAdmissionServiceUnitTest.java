@@ -0,0 +1,57 @@
+package com.xyz.upload.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.xyz.upload.demo.config.ApplicationProperties;
+import com.xyz.upload.demo.web.rest.errors.TooManyUploadsException;
+
+/**
+ * Test class for the UploadAdmissionService.
+ *
+ * @see UploadAdmissionService
+ */
+public class UploadAdmissionServiceUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private UploadAdmissionService uploadAdmissionService;
+
+    @Before
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.Upload.Admission admission = applicationProperties.getUpload().getAdmission();
+        admission.setMaxConcurrent(1);
+        admission.setMaxQueued(1);
+        admission.setQueueTimeoutMillis(50);
+        admission.setRetryAfterSeconds(7);
+        metricRegistry = new MetricRegistry();
+        uploadAdmissionService = new UploadAdmissionService(applicationProperties, metricRegistry);
+    }
+
+    @Test
+    public void testUploadIsRejectedWhenNoPermitIsReleasedInTime() {
+        try (UploadAdmissionService.Permit permit = uploadAdmissionService.admit()) {
+            assertThatThrownBy(() -> uploadAdmissionService.admit())
+                .isInstanceOf(TooManyUploadsException.class)
+                .hasFieldOrPropertyWithValue("retryAfterSeconds", 7L);
+        }
+        assertThat(metricRegistry.meter("upload.admission.rejected").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPermitIsReleasedOnce() {
+        UploadAdmissionService.Permit permit = uploadAdmissionService.admit();
+        permit.close();
+        permit.close();
+
+        try (UploadAdmissionService.Permit next = uploadAdmissionService.admit()) {
+            assertThat(metricRegistry.getGauges().get("upload.admission.active").getValue()).isEqualTo(1);
+            assertThatThrownBy(() -> uploadAdmissionService.admit()).isInstanceOf(TooManyUploadsException.class);
+        }
+    }
+}
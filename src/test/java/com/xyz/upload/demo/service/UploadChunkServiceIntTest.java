@@ -0,0 +1,122 @@
+package com.xyz.upload.demo.service;
+
+import com.xyz.upload.demo.FileUploadDemoApp;
+import com.xyz.upload.demo.service.dto.UploadSummaryDTO;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the UploadChunkService.
+ * <p>
+ * The workers of the test node are disabled, the nodes are simulated by threads claiming the chunks with their
+ * own node ids.
+ *
+ * @see UploadChunkService
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = FileUploadDemoApp.class)
+public class UploadChunkServiceIntTest {
+
+    @Autowired
+    private UploadChunkService uploadChunkService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void assertThatConcurrentNodesIngestEveryChunkOnce() throws Exception {
+        StringBuilder csv = new StringBuilder("First Name,Last Name,Age\n");
+        for (int line = 2; line <= 401; line++) {
+            String firstName = line == 300 ? "" : "Chunked" + line;
+            csv.append(firstName).append(",Node,20\n");
+        }
+        Path csvFile = Files.createTempFile("students", ".csv");
+        Files.write(csvFile, csv.toString().getBytes(StandardCharsets.UTF_8));
+        ExecutorService nodes = Executors.newFixedThreadPool(3);
+        try {
+            Future<UploadSummaryDTO> upload = nodes.submit(() ->
+                uploadChunkService.ingest(csvFile, new UploadOptions().distributed(true), new UploadProgress()));
+            Future<Integer> nodeA = nodes.submit(() -> drainUntilDone("node-a", upload));
+            Future<Integer> nodeB = nodes.submit(() -> drainUntilDone("node-b", upload));
+
+            UploadSummaryDTO summary = upload.get(30, TimeUnit.SECONDS);
+
+            // the CSV is about 8 KiB and the test chunks are 1 KiB
+            assertThat(nodeA.get(5, TimeUnit.SECONDS) + nodeB.get(5, TimeUnit.SECONDS)).isGreaterThan(1);
+            assertThat(summary.getParsedRows()).isEqualTo(400);
+            assertThat(summary.getInsertedRows()).isEqualTo(399);
+            assertThat(summary.getRejectedRows()).isEqualTo(1);
+            assertThat(summary.getErrors().get(0).getLineNumber()).isEqualTo(300);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from student where first_name like 'Chunked%'",
+                Long.class)).isEqualTo(399);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from upload_chunk", Long.class)).isZero();
+        } finally {
+            nodes.shutdownNow();
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @Test
+    public void assertThatQuotedLineFeedsAreIngestedByThisNode() throws Exception {
+        StringBuilder csv = new StringBuilder("First Name,Last Name,Age\n");
+        for (int line = 2; line <= 201; line++) {
+            csv.append("Quoted").append(line).append(line == 100 ? ",\"Multi\nLine\"" : ",\"Node\"").append(",20\n");
+        }
+        Path csvFile = Files.createTempFile("students", ".csv");
+        Files.write(csvFile, csv.toString().getBytes(StandardCharsets.UTF_8));
+        ExecutorService node = Executors.newSingleThreadExecutor();
+        try {
+            // the workers of the test node are disabled, so queued chunks would never be ingested
+            UploadSummaryDTO summary = node.submit(() ->
+                uploadChunkService.ingest(csvFile, new UploadOptions().distributed(true), new UploadProgress()))
+                .get(30, TimeUnit.SECONDS);
+
+            assertThat(summary.getInsertedRows()).isEqualTo(200);
+            assertThat(jdbcTemplate.queryForObject("select count(*) from student where last_name = 'Multi\nLine'",
+                Long.class)).isEqualTo(1);
+        } finally {
+            node.shutdownNow();
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @Test
+    public void assertThatOnlyRecentDatabasesSkipLockedRows() {
+        assertThat(UploadChunkService.claimStrategy("MySQL", 8, 0))
+            .isEqualTo(UploadChunkService.ClaimStrategy.SKIP_LOCKED);
+        assertThat(UploadChunkService.claimStrategy("MySQL", 5, 7))
+            .isEqualTo(UploadChunkService.ClaimStrategy.CONDITIONAL_UPDATE);
+        assertThat(UploadChunkService.claimStrategy("PostgreSQL", 9, 5))
+            .isEqualTo(UploadChunkService.ClaimStrategy.SKIP_LOCKED);
+        // H2 only locks rows with FOR UPDATE, without skipping them
+        assertThat(uploadChunkService.getClaimStrategy())
+            .isEqualTo(UploadChunkService.ClaimStrategy.CONDITIONAL_UPDATE);
+    }
+
+    private int drainUntilDone(String node, Future<?> upload) throws InterruptedException {
+        int claimed = 0;
+        while (!upload.isDone()) {
+            int count = uploadChunkService.drain(node);
+            claimed += count;
+            if (count == 0) {
+                Thread.sleep(10);
+            }
+        }
+        return claimed;
+    }
+}
@@ -0,0 +1,68 @@
+package com.xyz.upload.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Test class for the UploadMetrics.
+ *
+ * @see UploadMetrics
+ */
+public class UploadMetricsUnitTest {
+
+    private MetricRegistry metricRegistry;
+
+    private UploadMetrics uploadMetrics;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        uploadMetrics = new UploadMetrics(metricRegistry);
+    }
+
+    @Test
+    public void testStagesAreRecordedPerRowOncePerChunk() {
+        UploadProgress progress = new UploadProgress();
+        UploadMetrics.Recorder recorder = uploadMetrics.recorder(progress);
+        for (int i = 0; i < 3; i++) {
+            recorder.parsed(TimeUnit.MICROSECONDS.toNanos(1));
+            recorder.mapped(TimeUnit.MICROSECONDS.toNanos(2));
+            recorder.validated(TimeUnit.MICROSECONDS.toNanos(3));
+        }
+        // a row missing a column is parsed only
+        recorder.parsed(TimeUnit.MICROSECONDS.toNanos(5));
+        progress.bytesRead(100);
+        recorder.record();
+        // no row since the last chunk
+        recorder.record();
+
+        assertThat(metricRegistry.histogram(UploadMetrics.PREFIX + "parse.nanos-per-row").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.histogram(UploadMetrics.PREFIX + "parse.nanos-per-row").getSnapshot().getMax())
+            .isEqualTo(TimeUnit.MICROSECONDS.toNanos(2));
+        assertThat(metricRegistry.histogram(UploadMetrics.PREFIX + "map.nanos-per-row").getSnapshot().getMax())
+            .isEqualTo(TimeUnit.MICROSECONDS.toNanos(2));
+        assertThat(metricRegistry.histogram(UploadMetrics.PREFIX + "validate.nanos-per-row").getSnapshot().getMax())
+            .isEqualTo(TimeUnit.MICROSECONDS.toNanos(3));
+        assertThat(metricRegistry.meter(UploadMetrics.PREFIX + "rows.parsed").getCount()).isEqualTo(4);
+        assertThat(metricRegistry.meter(UploadMetrics.PREFIX + "bytes").getCount()).isEqualTo(100);
+    }
+
+    @Test
+    public void testPersistedChunksAreMeasured() {
+        uploadMetrics.persisted(500, TimeUnit.MILLISECONDS.toNanos(20));
+        uploadMetrics.persisted(100, TimeUnit.MILLISECONDS.toNanos(5));
+        uploadMetrics.rowRejected();
+
+        assertThat(metricRegistry.timer(UploadMetrics.PREFIX + "persist").getCount()).isEqualTo(2);
+        assertThat(metricRegistry.histogram(UploadMetrics.PREFIX + "chunk.size").getSnapshot().getValues())
+            .containsExactly(100, 500);
+        assertThat(metricRegistry.meter(UploadMetrics.PREFIX + "rows.written").getCount()).isEqualTo(600);
+        assertThat(metricRegistry.meter(UploadMetrics.PREFIX + "rows.rejected").getCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,146 @@
+package com.xyz.upload.demo.service.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class for the ByteStudentCsvReader, checked against the commons-csv based reader.
+ *
+ * @see ByteStudentCsvReader
+ */
+public class ByteStudentCsvReaderUnitTest {
+
+    @Test
+    public void testTrimsNamesAndParsesAge() throws IOException {
+        StudentCsvReader reader = reader("First Name,Last Name,Age\n  Manish  ,Gupta, 20 \n");
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.getLineNumber()).isEqualTo(2);
+        assertThat(reader.getFieldCount()).isEqualTo(3);
+        assertThat(reader.getFirstName()).isEqualTo("Manish");
+        assertThat(reader.getLastName()).isEqualTo("Gupta");
+        assertThat(reader.getAge()).isEqualTo(20);
+        assertThat(reader.next()).isFalse();
+        assertThat(reader.getLineCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testQuotedFields() throws IOException {
+        StudentCsvReader reader = reader("First Name,Last Name,Age\r\n\"Gupta, \"\"Jr\"\"\",\"multi\nline\",\"25\"\r\nKiKi,,30");
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.getFirstName()).isEqualTo("Gupta, \"Jr\"");
+        assertThat(reader.getLastName()).isEqualTo("multi\nline");
+        assertThat(reader.getAge()).isEqualTo(25);
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.getLineNumber()).isEqualTo(4);
+        assertThat(reader.getLastName()).isEmpty();
+        assertThat(reader.getAge()).isEqualTo(30);
+        assertThat(reader.next()).isFalse();
+        assertThat(reader.getLineCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testSkipsEmptyLinesButCountsThem() throws IOException {
+        StudentCsvReader reader = reader("First Name,Last Name,Age\n\n\nTia,Gulati,20\n");
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.getLineNumber()).isEqualTo(4);
+        assertThat(reader.next()).isFalse();
+    }
+
+    @Test
+    public void testInvalidAgesAreZero() throws IOException {
+        StudentCsvReader reader = new ByteStudentCsvReader(new ByteArrayInputStream(
+            "a,b,twenty\na,b,\na,b,99999999999\na,b,-7\na,b,+\n".getBytes(StandardCharsets.UTF_8)), false);
+        int[] expected = { 0, 0, 0, -7, 0 };
+        for (int age : expected) {
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.getAge()).isEqualTo(age);
+        }
+    }
+
+    @Test
+    public void testDecodesUtf8() throws IOException {
+        StudentCsvReader reader = reader("First Name,Last Name,Age\n Zoë ,Ñúñez,21\n");
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.getFirstName()).isEqualTo("Zoë");
+        assertThat(reader.getLastName()).isEqualTo("Ñúñez");
+        assertThat(reader.getContent()).isEqualTo(" Zoë ,Ñúñez,21");
+    }
+
+    @Test
+    public void testShortRecordsReportTheirFieldCount() throws IOException {
+        StudentCsvReader reader = reader("First Name,Last Name,Age\nonly,two\n");
+
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.getFieldCount()).isEqualTo(2);
+        assertThat(reader.getContent()).isEqualTo("only,two");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnterminatedQuoteIsMalformed() throws IOException {
+        StudentCsvReader reader = reader("First Name,Last Name,Age\n\"open,b,1\n");
+        reader.next();
+    }
+
+    @Test
+    public void testMatchesCommonsReader() throws IOException {
+        String csv = "First Name,Last Name,Age\nManish  ,Gupta,20\nKiKi,,25\n\n\"A, B\",\"C\"\"D\",7\n,x,1\n";
+        StudentCsvReader bytes = reader(csv);
+        StudentCsvReader commons = new CommonsStudentCsvReader(new StringReader(csv), true);
+        while (commons.next()) {
+            assertThat(bytes.next()).isTrue();
+            assertThat(bytes.getLineNumber()).isEqualTo(commons.getLineNumber());
+            assertThat(bytes.getFirstName()).isEqualTo(commons.getFirstName());
+            assertThat(bytes.getLastName()).isEqualTo(commons.getLastName());
+            assertThat(bytes.getAge()).isEqualTo(commons.getAge());
+            assertThat(bytes.getContent()).isEqualTo(commons.getContent());
+        }
+        assertThat(bytes.next()).isFalse();
+    }
+
+    @Test
+    public void testMappedRegionMatchesStream() throws IOException {
+        String csv = "First Name,Last Name,Age\nManish  ,Gupta,20\n\"A, B\",\"multi\nline\",7\nZoë,Ñúñez,21\n";
+        byte[] bytes = ("ignored\n" + csv).getBytes(StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("mapped-", ".csv");
+        try {
+            Files.write(file, bytes);
+            AtomicLong bytesRead = new AtomicLong();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // windows of 5 bytes, so quoted fields and UTF-8 sequences span several windows
+                StudentCsvReader mapped = new ByteStudentCsvReader(channel, "ignored\n".length(), bytes.length, true,
+                    bytesRead::addAndGet, 5);
+                StudentCsvReader stream = reader(csv);
+                while (stream.next()) {
+                    assertThat(mapped.next()).isTrue();
+                    assertThat(mapped.getLineNumber()).isEqualTo(stream.getLineNumber());
+                    assertThat(mapped.getContent()).isEqualTo(stream.getContent());
+                    assertThat(mapped.getAge()).isEqualTo(stream.getAge());
+                }
+                assertThat(mapped.next()).isFalse();
+                assertThat(mapped.getLineCount()).isEqualTo(stream.getLineCount());
+            }
+            assertThat(bytesRead.get()).isEqualTo(bytes.length - "ignored\n".length());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static StudentCsvReader reader(String csv) {
+        return new ByteStudentCsvReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true);
+    }
+}
@@ -0,0 +1,67 @@
+package com.xyz.upload.demo.service.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.xyz.upload.demo.service.dto.StudentDTO;
+
+/**
+ * Test class for the DuplicateRowDetector.
+ *
+ * @see DuplicateRowDetector
+ */
+public class DuplicateRowDetectorUnitTest {
+
+    @Test
+    public void testPendingCopiesAreDuplicates() {
+        DuplicateRowDetector detector = new DuplicateRowDetector(new OffHeapBloomFilter(1000, 0.01),
+            student -> Collections.emptyList());
+
+        assertThat(detector.accept(new StudentDTO("First", "Last", 20))).isTrue();
+        assertThat(detector.accept(new StudentDTO("First", "Last", 20))).isFalse();
+        assertThat(detector.accept(new StudentDTO("First", "Last", 21))).isTrue();
+        assertThat(detector.accept(new StudentDTO("FirstLast", "", 20))).isTrue();
+    }
+
+    @Test
+    public void testWrittenCopiesAreDuplicatesOnlyIfWrittenByTheUpload() {
+        List<Long> databaseIds = new ArrayList<>();
+        DuplicateRowDetector detector = new DuplicateRowDetector(new OffHeapBloomFilter(1000, 0.01),
+            student -> databaseIds);
+        StudentDTO first = new StudentDTO("First", "Last", 20);
+        StudentDTO second = new StudentDTO("Second", "Last", 20);
+        assertThat(detector.accept(first)).isTrue();
+        assertThat(detector.accept(second)).isTrue();
+        first.setId(100L);
+        second.setId(101L);
+        detector.written(Arrays.asList(first, second));
+
+        // a student with the same values which existed before the upload is not a copy
+        databaseIds.add(7L);
+        assertThat(detector.accept(new StudentDTO("Second", "Last", 20))).isTrue();
+
+        databaseIds.add(100L);
+        assertThat(detector.accept(new StudentDTO("First", "Last", 20))).isFalse();
+    }
+
+    @Test
+    public void testFilterSizeDoesNotDependOnTheAddedElements() {
+        OffHeapBloomFilter bloomFilter = new OffHeapBloomFilter(1_000_000, 0.01);
+        long size = bloomFilter.getSizeInBytes();
+
+        for (long i = 0; i < 10_000; i++) {
+            bloomFilter.put(i * 0x9e3779b97f4a7c15L, i * 0xc2b2ae3d27d4eb4fL + 1);
+        }
+
+        // about 9.6 bits per element at a 1% false positive rate
+        assertThat(size).isBetween(1_150_000L, 1_250_000L);
+        assertThat(bloomFilter.getHashCount()).isEqualTo(7);
+        assertThat(bloomFilter.getSizeInBytes()).isEqualTo(size);
+    }
+}
@@ -0,0 +1,97 @@
+package com.xyz.upload.demo.service.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.xyz.upload.demo.service.dto.RejectedRowDTO;
+
+/**
+ * Test class for the ErrorReport.
+ *
+ * @see ErrorReport
+ */
+public class ErrorReportUnitTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRowsAreReadFromAnyOffset() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("report.tsv");
+        try (ErrorReport report = ErrorReport.create("report", file)) {
+            for (int line = 1; line <= 1000; line++) {
+                report.append(new RejectedRowDTO(line, "row " + line, "message " + line));
+            }
+            List<RejectedRowDTO> rows = report.read(ErrorReport.INDEX_INTERVAL * 2 + 10, 3);
+
+            assertThat(rows).extracting(RejectedRowDTO::getLineNumber).containsExactly(523L, 524L, 525L);
+            assertThat(report.read(998, 10)).hasSize(2);
+            assertThat(report.read(1000, 10)).isEmpty();
+        }
+    }
+
+    @Test
+    public void testContentIsEscaped() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("report.tsv");
+        try (ErrorReport report = ErrorReport.create("report", file)) {
+            report.append(new RejectedRowDTO(2, "multi\nline\tcontent\\", "firstName must not be null"));
+        }
+
+        ErrorReport reopened = ErrorReport.open("report", file);
+        List<RejectedRowDTO> rows = reopened.read(0, 10);
+
+        assertThat(reopened.getRowCount()).isEqualTo(1);
+        assertThat(rows.get(0).getContent()).isEqualTo("multi\nline\tcontent\\");
+        assertThat(rows.get(0).getMessage()).isEqualTo("firstName must not be null");
+    }
+
+    @Test
+    public void testCodeIsKeptWhenPresent() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("report.tsv");
+        try (ErrorReport report = ErrorReport.create("report", file)) {
+            report.append(new RejectedRowDTO(2, RejectedRowDTO.Code.DUPLICATE, "row", "repeats a previous row"));
+            report.append(new RejectedRowDTO(3, "row", "message"));
+
+            List<RejectedRowDTO> rows = report.read(0, 10);
+
+            assertThat(rows).extracting(RejectedRowDTO::getCode).containsExactly(RejectedRowDTO.Code.DUPLICATE, null);
+            assertThat(rows).extracting(RejectedRowDTO::getMessage).containsExactly("repeats a previous row", "message");
+        }
+    }
+
+    @Test
+    public void testPartsAreAppendedWithShiftedLineNumbers() throws IOException {
+        Path folder = temporaryFolder.getRoot().toPath();
+        ErrorReport part = ErrorReport.create("part", folder.resolve("part.tsv"));
+        part.append(new RejectedRowDTO(3, "row", "message"));
+        part.close();
+
+        try (ErrorReport report = ErrorReport.create("report", folder.resolve("report.tsv"))) {
+            report.append(new RejectedRowDTO(2, "row", "message"));
+            report.appendAll(part, 100);
+
+            assertThat(report.read(0, 10)).extracting(RejectedRowDTO::getLineNumber).containsExactly(2L, 103L);
+        }
+    }
+
+    @Test
+    public void testReportIsOpenUntilClosed() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("report.tsv");
+        ErrorReport report = ErrorReport.create("report", file);
+
+        // without rows the report has no file, but it is still open
+        assertThat(report.isOpen()).isTrue();
+        report.append(new RejectedRowDTO(2, "row", "message"));
+        report.close();
+
+        assertThat(report.isOpen()).isFalse();
+        assertThat(ErrorReport.open("report", file).isOpen()).isFalse();
+    }
+}
@@ -2,16 +2,22 @@ package com.xyz.upload.demo.web.rest;
 
 import static com.xyz.upload.demo.web.rest.TestUtil.createFormattingConversionService;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.persistence.EntityManager;
 
@@ -22,6 +28,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -35,6 +42,8 @@ import com.xyz.upload.demo.domain.Student;
 import com.xyz.upload.demo.repository.StudentRepository;
 import com.xyz.upload.demo.service.StudentQueryService;
 import com.xyz.upload.demo.service.StudentService;
+import com.xyz.upload.demo.service.StudentUploadService;
+import com.xyz.upload.demo.service.UploadAdmissionService;
 import com.xyz.upload.demo.service.dto.StudentDTO;
 import com.xyz.upload.demo.service.mapper.StudentMapper;
 import com.xyz.upload.demo.web.rest.errors.ExceptionTranslator;
@@ -69,6 +78,12 @@ public class StudentResourceIntTest {
     @Autowired
     private StudentQueryService studentQueryService;
 
+    @Autowired
+    private StudentUploadService studentUploadService;
+
+    @Autowired
+    private UploadAdmissionService uploadAdmissionService;
+
     @Autowired
     private MappingJackson2HttpMessageConverter jacksonMessageConverter;
 
@@ -91,7 +106,8 @@ public class StudentResourceIntTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        final StudentResource studentResource = new StudentResource(studentService, studentQueryService);
+        final StudentResource studentResource = new StudentResource(studentService, studentQueryService,
+            studentUploadService, uploadAdmissionService);
         this.restStudentMockMvc = MockMvcBuilders.standaloneSetup(studentResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)
@@ -140,6 +156,37 @@ public class StudentResourceIntTest {
         assertThat(testStudent.getAge()).isEqualTo(DEFAULT_AGE);
     }
 
+    @Test
+    @Transactional
+    public void createStudentsFromJsonLines() throws Exception {
+        int databaseSizeBeforeCreate = studentRepository.findAll().size();
+
+        String jsonLines = "{\"firstName\":\"Tia\",\"lastName\":\"Gulati\",\"age\":20}\n" +
+            "{\"firstName\":\"\",\"lastName\":\"Blank\",\"age\":21}\n" +
+            "{\"firstName\":\"Manish\",\"lastName\":null,\"age\":\"22\",\"id\":{\"ignored\":true}}\n" +
+            "{\"firstName\":\"NoAge\",\"lastName\":\"Gupta\"}\n";
+        restStudentMockMvc.perform(post("/api/students/bulk")
+            .contentType("application/x-ndjson")
+            .content(jsonLines))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.parsedRows").value(4))
+            .andExpect(jsonPath("$.insertedRows").value(2))
+            .andExpect(jsonPath("$.rejectedRows").value(2))
+            .andExpect(jsonPath("$.errors[0].lineNumber").value(2));
+
+        List<Student> studentList = studentRepository.findAll();
+        assertThat(studentList).hasSize(databaseSizeBeforeCreate + 2);
+    }
+
+    @Test
+    @Transactional
+    public void createStudentsFromMalformedJsonLines() throws Exception {
+        restStudentMockMvc.perform(post("/api/students/bulk")
+            .contentType("application/x-ndjson")
+            .content("{\"firstName\":\"Tia\",\"lastName\":\"Gulati\",\"age\":20}\n{\"firstName\":"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void createStudentWithExistingId() throws Exception {
@@ -214,6 +261,79 @@ public class StudentResourceIntTest {
             .andExpect(jsonPath("$.[*].age").value(hasItem(DEFAULT_AGE)));
     }
     
+    @Test
+    @Transactional
+    public void getAllStudentsAfterCursor() throws Exception {
+        // Initialize the database
+        studentRepository.saveAndFlush(student.firstName("KEYSET"));
+        Student second = studentRepository.saveAndFlush(createEntity(em).firstName("KEYSET").age(UPDATED_AGE));
+        Student third = studentRepository.saveAndFlush(createEntity(em).firstName("KEYSET").age(UPDATED_AGE));
+
+        // Get the first slice, the ties of the age are broken by the id
+        String link = restStudentMockMvc
+            .perform(get("/api/students?after=&size=2&sort=age,desc&firstName.equals=KEYSET"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(third.getId().intValue(), second.getId().intValue())))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andReturn().getResponse().getHeader(HttpHeaders.LINK);
+        Matcher next = Pattern.compile("after=([\\w-]+)").matcher(link);
+        assertThat(next.find()).isTrue();
+
+        // Get the next slice, in the order of the cursor
+        restStudentMockMvc.perform(get("/api/students?size=2&firstName.equals=KEYSET&after=" + next.group(1)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(student.getId().intValue())))
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsWithoutTotalCount() throws Exception {
+        // Initialize the database
+        studentRepository.saveAndFlush(student.firstName("NOCOUNT"));
+        Student second = studentRepository.saveAndFlush(createEntity(em).firstName("NOCOUNT"));
+
+        restStudentMockMvc.perform(get("/api/students?count=NONE&size=1&sort=id,asc&firstName.equals=NOCOUNT"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(student.getId().intValue())))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")));
+
+        restStudentMockMvc.perform(get("/api/students?count=NONE&size=1&page=1&sort=id,asc&firstName.equals=NOCOUNT"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].id").value(contains(second.getId().intValue())))
+            .andExpect(header().string(HttpHeaders.LINK, not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsWithApproximateTotalCount() throws Exception {
+        // Initialize the database
+        studentRepository.saveAndFlush(student.firstName("APPROXIMATE"));
+
+        restStudentMockMvc.perform(get("/api/students?count=APPROXIMATE&size=1&firstName.equals=APPROXIMATE"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(header().exists("X-Total-Count-Date"));
+
+        // The cached count is outdated, but the next page is still detected
+        studentRepository.saveAndFlush(createEntity(em).firstName("APPROXIMATE"));
+
+        restStudentMockMvc.perform(get("/api/students?count=APPROXIMATE&size=1&firstName.equals=APPROXIMATE"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "2"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsAfterInvalidCursor() throws Exception {
+        restStudentMockMvc.perform(get("/api/students?after=!"))
+            .andExpect(status().isBadRequest());
+        restStudentMockMvc.perform(get("/api/students?after=&sort=lastName,asc"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getStudent() throws Exception {
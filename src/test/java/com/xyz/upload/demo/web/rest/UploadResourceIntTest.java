@@ -1,11 +1,25 @@
 package com.xyz.upload.demo.web.rest;
 
 import static com.xyz.upload.demo.web.rest.TestUtil.createFormattingConversionService;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -13,17 +27,30 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.validation.Validator;
 
 import com.google.common.io.Resources;
+import com.jayway.jsonpath.JsonPath;
 import com.xyz.upload.demo.FileUploadDemoApp;
-import com.xyz.upload.demo.service.StudentService;
+import com.xyz.upload.demo.domain.Student;
+import com.xyz.upload.demo.repository.StudentRepository;
+import com.xyz.upload.demo.service.ErrorReportService;
+import com.xyz.upload.demo.service.UploadAdmissionService;
+import com.xyz.upload.demo.service.UploadCheckpointService;
+import com.xyz.upload.demo.service.UploadContentService;
+import com.xyz.upload.demo.service.UploadJobEventService;
+import com.xyz.upload.demo.service.UploadJobService;
+import com.xyz.upload.demo.service.UploadOptions;
+import com.xyz.upload.demo.service.dto.UploadCheckpointDTO;
+import com.xyz.upload.demo.service.dto.UploadJobDTO;
 import com.xyz.upload.demo.web.rest.errors.ExceptionTranslator;
 
 /**
@@ -38,7 +65,25 @@ public class UploadResourceIntTest {
 	private MockMvc restMockMvc;
 
 	@Autowired
-	private StudentService studentService;
+	private UploadContentService uploadContentService;
+
+	@Autowired
+	private UploadJobService uploadJobService;
+
+	@Autowired
+	private UploadJobEventService uploadJobEventService;
+
+	@Autowired
+	private UploadAdmissionService uploadAdmissionService;
+
+	@Autowired
+	private UploadCheckpointService uploadCheckpointService;
+
+	@Autowired
+	private ErrorReportService errorReportService;
+
+	@Autowired
+	private StudentRepository studentRepository;
 
 	@Autowired
 	private MappingJackson2HttpMessageConverter jacksonMessageConverter;
@@ -56,7 +101,9 @@ public class UploadResourceIntTest {
 	public void setUp() {
 		MockitoAnnotations.initMocks(this);
 
-		final UploadResource uploadResource = new UploadResource(studentService);
+		final UploadResource uploadResource = new UploadResource(uploadContentService, uploadJobService,
+				uploadJobEventService, uploadAdmissionService, errorReportService,
+				jacksonMessageConverter.getObjectMapper());
 		this.restMockMvc = MockMvcBuilders.standaloneSetup(uploadResource)
 				.setCustomArgumentResolvers(pageableArgumentResolver).setControllerAdvice(exceptionTranslator)
 				.setConversionService(createFormattingConversionService()).setMessageConverters(jacksonMessageConverter)
@@ -74,7 +121,403 @@ public class UploadResourceIntTest {
 		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain", fis);
 
 		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile))
-				.andExpect(status().isOk());
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(2))
+				.andExpect(jsonPath("$.insertedRows").value(2))
+				.andExpect(jsonPath("$.rejectedRows").value(0));
+
+	}
+
+	@Test
+	public void testUploadFile_WithNativeWriter_LoadsValidRows() throws Exception {
+
+		String lastName = UUID.randomUUID().toString();
+		String csv = "First Name,Last Name,Age\n\"O'Hara, \"\"Scarlett\"\"\"," + lastName + ",20\n,Blank,21\nPlain,"
+				+ lastName + ",22\n";
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				csv.getBytes(StandardCharsets.UTF_8));
+
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile)
+				.param("writer", "NATIVE"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(3))
+				.andExpect(jsonPath("$.insertedRows").value(2))
+				.andExpect(jsonPath("$.rejectedRows").value(1));
+
+		assertThat(studentRepository.findAll()).filteredOn(student -> lastName.equals(student.getLastName()))
+				.extracting(Student::getFirstName).containsExactlyInAnyOrder("O'Hara, \"Scarlett\"", "Plain");
+
+	}
+
+	@Test
+	public void testUploadFile_WithMergeMode_UpdatesMatchingStudents() throws Exception {
+
+		String lastName = UUID.randomUUID().toString();
+		MockMultipartFile firstFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				("First Name,Last Name,Age\nMerge," + lastName + ",20\n").getBytes(StandardCharsets.UTF_8));
+		MockMultipartFile correctedFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				("First Name,Last Name,Age\nMerge," + lastName + ",21\nOther," + lastName + ",22\n")
+						.getBytes(StandardCharsets.UTF_8));
+
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(firstFile)
+				.param("mode", "MERGE"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(1))
+				.andExpect(jsonPath("$.updatedRows").value(0));
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(correctedFile)
+				.param("mode", "MERGE"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(1))
+				.andExpect(jsonPath("$.updatedRows").value(1));
+
+		assertThat(studentRepository.findAll()).filteredOn(student -> lastName.equals(student.getLastName()))
+				.extracting(Student::getFirstName, Student::getAge)
+				.containsExactlyInAnyOrder(tuple("Merge", 21), tuple("Other", 22));
+
+	}
+
+	@Test
+	public void testUploadFile_WithDedup_RejectsRepeatedRows() throws Exception {
+
+		String lastName = UUID.randomUUID().toString();
+		String csv = "First Name,Last Name,Age\nCopy," + lastName + ",20\nOther," + lastName + ",21\nCopy," + lastName
+				+ ",20\nCopy," + lastName + ",20\n";
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				csv.getBytes(StandardCharsets.UTF_8));
+
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile)
+				.param("dedup", "true"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(2))
+				.andExpect(jsonPath("$.rejectedRows").value(2))
+				.andExpect(jsonPath("$.errors[0].code").value("DUPLICATE"))
+				.andExpect(jsonPath("$.errors[0].lineNumber").value(4));
+
+		assertThat(studentRepository.findAll()).filteredOn(student -> lastName.equals(student.getLastName()))
+				.hasSize(2);
+
+	}
+
+	@Test
+	public void testUploadFile_WithDryRun_ValidatesWithoutWriting() throws Exception {
+
+		String lastName = UUID.randomUUID().toString();
+		String csv = "First Name,Last Name,Age\nDry," + lastName + ",20\n," + lastName + ",21\n," + lastName
+				+ ",22\nShort," + lastName + "\n";
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				csv.getBytes(StandardCharsets.UTF_8));
+
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile)
+				.param("dryRun", "true"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.dryRun").value(true))
+				.andExpect(jsonPath("$.parsedRows").value(4))
+				.andExpect(jsonPath("$.insertedRows").value(0))
+				.andExpect(jsonPath("$.rejectedRows").value(3))
+				.andExpect(jsonPath("$.violations", hasSize(2)))
+				.andExpect(jsonPath("$.violations[0].rule").value("firstName.Size"))
+				.andExpect(jsonPath("$.violations[0].count").value(2))
+				.andExpect(jsonPath("$.violations[0].rows[0].lineNumber").value(3))
+				.andExpect(jsonPath("$.violations[1].rule").value("columnCount"))
+				.andExpect(jsonPath("$.violations[1].count").value(1));
+		assertThat(studentRepository.findAll()).noneMatch(student -> lastName.equals(student.getLastName()));
+
+		// a dry run is not indexed, so the same content is then ingested
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.duplicate").value(false))
+				.andExpect(jsonPath("$.insertedRows").value(1));
+
+	}
+
+	@Test
+	public void testUploadStream_WithDryRun_KeepsQuotedLineFeedsInTheirRow() throws Exception {
+
+		// the middle of the file, where it would be split in two segments, is inside the quoted field
+		StringBuilder rows = new StringBuilder();
+		for (int i = 0; i < 7000; i++) {
+			rows.append("Dry,Run,20\n");
+		}
+		StringBuilder multiLine = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			multiLine.append("line\n");
+		}
+		String csv = "First Name,Last Name,Age\n" + rows + "Dry,\"" + multiLine + "\",21\n" + rows;
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").param("dryRun", "true")
+				.contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.dryRun").value(true))
+				.andExpect(jsonPath("$.parsedRows").value(14001))
+				.andExpect(jsonPath("$.rejectedRows").value(0));
+
+	}
+
+	@Test
+	public void testUploadFile_WithEvents_StreamsRejectedRowsAndSummary() throws Exception {
+
+		String csv = "First Name,Last Name,Age\nEvent,One,20\n,Blank,21\nEvent,Two,22\n ,Blank,23\nEvent,Three,24\n";
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				csv.getBytes(StandardCharsets.UTF_8));
+
+		MvcResult result = restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file")
+				.file(mockMultipartFile).param("events", "true"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = restMockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		String[] events = body.split("\n");
+		assertThat(events).extracting(event -> (String) JsonPath.read(event, "$.type"))
+				.containsExactly("REJECTED", "PROGRESS", "REJECTED", "PROGRESS", "SUMMARY");
+		assertThat((Integer) JsonPath.read(events[2], "$.row.lineNumber")).isEqualTo(5);
+		assertThat((Integer) JsonPath.read(events[4], "$.summary.insertedRows")).isEqualTo(3);
+
+	}
+
+	@Test
+	public void testUploadStream_ReportsBoundedErrors() throws Exception {
+
+		String csv = "First Name,Last Name,Age\n,NoFirstName,20\n ,Blank,21\nTia,Gulati,22\n";
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(3))
+				.andExpect(jsonPath("$.insertedRows").value(1))
+				.andExpect(jsonPath("$.rejectedRows").value(2))
+				.andExpect(jsonPath("$.errors", hasSize(1)))
+				.andExpect(jsonPath("$.errors[0].lineNumber").value(2))
+				.andExpect(jsonPath("$.errorsTruncated").value(true));
+
+	}
+
+	@Test
+	public void testUploadFile_Parallel_KeepsLineNumbersInFileOrder() throws Exception {
+
+		String lastName = StringUtils.repeat('x', 100);
+		StringBuilder csv = new StringBuilder("First Name,Last Name,Age\n");
+		for (int line = 2; line <= 1501; line++) {
+			String firstName = line == 1000 || line == 1400 ? "" : "Student" + line;
+			csv.append(firstName).append(',').append(lastName).append(',').append(20).append('\n');
+		}
+
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				csv.toString().getBytes(StandardCharsets.UTF_8));
+
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile)
+				.param("parallel", "true"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(1500))
+				.andExpect(jsonPath("$.insertedRows").value(1498))
+				.andExpect(jsonPath("$.rejectedRows").value(2))
+				.andExpect(jsonPath("$.errors[0].lineNumber").value(1000));
+
+	}
+
+	@Test
+	public void testUploadFile_Parallel_KeepsQuotedLineFeedsInTheirRow() throws Exception {
+
+		// the middle of the file, where it would be split in two segments, is inside the quoted field
+		StringBuilder rows = new StringBuilder();
+		for (int i = 0; i < 4000; i++) {
+			rows.append("Parallel,Quoted,20\n");
+		}
+		String csv = "First Name,Last Name,Age\n" + rows + "Parallel,\"" + StringUtils.repeat("line\n", 40) + "\",21\n"
+				+ rows;
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				csv.getBytes(StandardCharsets.UTF_8));
+
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile)
+				.param("parallel", "true"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(8001))
+				.andExpect(jsonPath("$.insertedRows").value(8001))
+				.andExpect(jsonPath("$.rejectedRows").value(0));
+
+	}
+
+	@Test
+	public void testUploadFile_Mapped_MatchesStreamedIngestion() throws Exception {
+
+		String lastName = StringUtils.repeat('m', 100);
+		StringBuilder csv = new StringBuilder("First Name,Last Name,Age\n");
+		for (int line = 2; line <= 1501; line++) {
+			String firstName = line == 1000 || line == 1400 ? "" : "Mapped" + line;
+			csv.append(firstName).append(',').append(lastName).append(',').append(20).append('\n');
+		}
+
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain",
+				csv.toString().getBytes(StandardCharsets.UTF_8));
+
+		for (String parallel : new String[] { "false", "true" }) {
+			restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile)
+					.param("parallel", parallel).param("parser", "TOKENIZER").param("mapped", "true")
+					.param("force", "true"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.parsedRows").value(1500))
+					.andExpect(jsonPath("$.insertedRows").value(1498))
+					.andExpect(jsonPath("$.rejectedRows").value(2))
+					.andExpect(jsonPath("$.errors[0].lineNumber").value(1000));
+		}
+
+	}
+
+	@Test
+	public void testGetErrors_PagesEveryRejectedRow() throws Exception {
+
+		StringBuilder csv = new StringBuilder("First Name,Last Name,Age\n");
+		for (int line = 2; line <= 601; line++) {
+			csv.append(line % 2 == 0 ? "" : "Report" + line).append(",\"Tab\tLast\",").append(30).append('\n');
+		}
+
+		MvcResult result = restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream")
+				.contentType("text/csv").content(csv.toString()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.rejectedRows").value(300))
+				.andExpect(jsonPath("$.errors", hasSize(1)))
+				.andReturn();
+		String reportId = JsonPath.read(result.getResponse().getContentAsString(), "$.errorReportId");
+
+		restMockMvc.perform(MockMvcRequestBuilders.get("/api/upload/{id}/errors", reportId)
+				.param("page", "2").param("size", "100"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Total-Count", "300"))
+				.andExpect(jsonPath("$", hasSize(100)))
+				.andExpect(jsonPath("$[0].lineNumber").value(402))
+				.andExpect(jsonPath("$[0].content").value(",Tab\tLast,30"));
+
+		restMockMvc.perform(MockMvcRequestBuilders.get("/api/upload/{id}/errors", "unknown"))
+				.andExpect(status().isNotFound());
+
+	}
+
+	@Test
+	public void testUploadStream_WithTokenizer() throws Exception {
+
+		String csv = "First Name,Last Name,Age\n\"Gupta, Jr\",Manish,20\n,Blank,21\n";
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").param("parser", "TOKENIZER")
+				.contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(2))
+				.andExpect(jsonPath("$.insertedRows").value(1))
+				.andExpect(jsonPath("$.errors[0].lineNumber").value(3));
+
+	}
+
+	@Test
+	public void testUploadStream_ResumesAfterLastCommittedChunk() throws Exception {
+
+		String uploadId = UUID.randomUUID().toString();
+		String csv = "First Name,Last Name,Age\nA,One,20\nB,Two,21\nC,Three,22\nD,Four,23\nE,Five,24\n";
+
+		// a previous attempt committed the rows up to line 3 before failing
+		UploadCheckpointDTO checkpoint = uploadCheckpointService.start(uploadId, UploadOptions.Parser.COMMONS);
+		uploadCheckpointService.commit(checkpoint, 3, false, () -> 2);
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").param("uploadId", uploadId)
+				.contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(3))
+				.andExpect(jsonPath("$.insertedRows").value(3))
+				.andExpect(jsonPath("$.resumedAfterLine").value(3));
+
+		checkpoint = uploadCheckpointService.findOne(uploadId).get();
+		assertThat(checkpoint.isCompleted()).isTrue();
+		assertThat(checkpoint.getInsertedRows()).isEqualTo(5);
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").param("uploadId", uploadId)
+				.param("force", "true").contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(0));
+
+	}
+
+	@Test
+	public void testUploadStream_RefusesToResumeWithAnotherParser() throws Exception {
+
+		String uploadId = UUID.randomUUID().toString();
+		String csv = "First Name,Last Name,Age\nA,One,20\nB,Two,21\n";
+		uploadCheckpointService.start(uploadId, UploadOptions.Parser.TOKENIZER);
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").param("uploadId", uploadId)
+				.param("parser", "COMMONS").contentType("text/csv").content(csv))
+				.andExpect(status().isBadRequest());
+
+	}
+
+	@Test
+	public void testUploadStream_AnswersDuplicateContentFromTheIndex() throws Exception {
+
+		String csv = "First Name,Last Name,Age\nFrom,Upstream,30\nAgain,Upstream,31\n";
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(2))
+				.andExpect(jsonPath("$.contentHash").isNotEmpty())
+				.andExpect(jsonPath("$.duplicate").value(false));
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(2))
+				.andExpect(jsonPath("$.duplicate").value(true));
+
+		// the same content merged has another outcome than when it was inserted
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").param("mode", "MERGE")
+				.contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(0))
+				.andExpect(jsonPath("$.duplicate").value(false));
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").param("force", "true")
+				.contentType("text/csv").content(csv))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.insertedRows").value(2))
+				.andExpect(jsonPath("$.duplicate").value(false));
+
+	}
+
+	@Test
+	public void testUploadStream_GzipEncoded() throws Exception {
+
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+			out.write("First Name,Last Name,Age\nGzip,Student,20\n,Blank,21\n".getBytes(StandardCharsets.UTF_8));
+		}
+
+		restMockMvc.perform(MockMvcRequestBuilders.post("/api/upload/stream").contentType("text/csv")
+				.header(HttpHeaders.CONTENT_ENCODING, "gzip").content(gzip.toByteArray()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(2))
+				.andExpect(jsonPath("$.insertedRows").value(1))
+				.andExpect(jsonPath("$.errors[0].lineNumber").value(3));
+
+	}
+
+	@Test
+	public void testUploadFile_ZipBundle_SummarizesEveryEntry() throws Exception {
+
+		ByteArrayOutputStream zip = new ByteArrayOutputStream();
+		try (ZipOutputStream out = new ZipOutputStream(zip)) {
+			out.putNextEntry(new ZipEntry("first.csv"));
+			out.write("First Name,Last Name,Age\nZip,One,20\nZip,Two,21\n".getBytes(StandardCharsets.UTF_8));
+			out.putNextEntry(new ZipEntry("second.csv"));
+			out.write("First Name,Last Name,Age\n,Blank,22\nZip,Three,23\n".getBytes(StandardCharsets.UTF_8));
+			out.putNextEntry(new ZipEntry("README.txt"));
+			out.write("not a CSV".getBytes(StandardCharsets.UTF_8));
+		}
+
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.zip", "application/zip",
+				zip.toByteArray());
+
+		restMockMvc.perform(MockMvcRequestBuilders.multipart("/api/upload/upload-file").file(mockMultipartFile))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.parsedRows").value(4))
+				.andExpect(jsonPath("$.insertedRows").value(3))
+				.andExpect(jsonPath("$.rejectedRows").value(1))
+				.andExpect(jsonPath("$.entries", hasSize(2)))
+				.andExpect(jsonPath("$.entries[?(@.fileName == 'second.csv')].errors[0].lineNumber").value(2));
 
 	}
 
@@ -111,4 +554,79 @@ public class UploadResourceIntTest {
 				.andExpect(status().is4xxClientError());
 
 	}
+
+	@Test
+	public void testCreateJob_CompletesAsynchronously() throws Exception {
+
+		FileInputStream fis = new FileInputStream(new File(Resources.getResource("students.csv").getFile()));
+
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain", fis);
+
+		MvcResult result = restMockMvc
+				.perform(MockMvcRequestBuilders.multipart("/api/upload/jobs").file(mockMultipartFile)
+						.param("force", "true"))
+				.andExpect(status().isAccepted())
+				.andExpect(jsonPath("$.id").isNotEmpty())
+				.andReturn();
+		String id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+
+		UploadJobDTO job = awaitJob(id);
+		assertThat(job.getStatus()).isEqualTo(UploadJobDTO.Status.COMPLETED);
+		assertThat(job.getInsertedRows()).isEqualTo(2);
+
+		restMockMvc.perform(MockMvcRequestBuilders.get("/api/upload/jobs/{id}", id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.status").value("COMPLETED"))
+				.andExpect(jsonPath("$.summary.insertedRows").value(2));
+
+	}
+
+	@Test
+	public void testGetJobEvents_StreamsProgressUntilSummary() throws Exception {
+
+		FileInputStream fis = new FileInputStream(new File(Resources.getResource("students.csv").getFile()));
+
+		MockMultipartFile mockMultipartFile = new MockMultipartFile("file", "students.csv", "text/plain", fis);
+
+		MvcResult created = restMockMvc
+				.perform(MockMvcRequestBuilders.multipart("/api/upload/jobs").file(mockMultipartFile)
+						.param("force", "true"))
+				.andExpect(status().isAccepted())
+				.andReturn();
+		String id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+		MvcResult result = restMockMvc.perform(MockMvcRequestBuilders.get("/api/upload/{id}/events", id))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		result.getAsyncResult(10_000);
+
+		String body = result.getResponse().getContentAsString();
+		assertThat(body).contains("event:PROGRESS").contains("\"etaSeconds\":0").endsWith("\n\n");
+		String summary = StringUtils.substringAfter(body, "event:SUMMARY\ndata:");
+		assertThat((Integer) JsonPath.read(summary.trim(), "$.summary.insertedRows")).isEqualTo(2);
+
+		restMockMvc.perform(MockMvcRequestBuilders.get("/api/upload/{id}/events", "unknown"))
+				.andExpect(status().isNotFound());
+
+	}
+
+	@Test
+	public void testGetJob_Unknown() throws Exception {
+
+		restMockMvc.perform(MockMvcRequestBuilders.get("/api/upload/jobs/{id}", "unknown"))
+				.andExpect(status().isNotFound());
+
+		restMockMvc.perform(MockMvcRequestBuilders.delete("/api/upload/jobs/{id}", "unknown"))
+				.andExpect(status().isNotFound());
+
+	}
+
+	private UploadJobDTO awaitJob(String id) throws InterruptedException {
+		UploadJobDTO job = uploadJobService.findOne(id).get();
+		for (int i = 0; i < 100 && job.getFinishedDate() == null; i++) {
+			Thread.sleep(100);
+			job = uploadJobService.findOne(id).get();
+		}
+		return job;
+	}
 }